@@ -0,0 +1,92 @@
+package com.payrollsystem.benchmark;
+
+import com.payrollsystem.actuator.PayrollMetrics;
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.service.IngestionLimiter;
+import com.payrollsystem.service.PayrollServiceImpl;
+import com.payrollsystem.store.EventStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deterministic synthetic payroll events shared by the benchmarks.
+ * <p>
+ * Events spread over ten years and one employee per twenty events, with roughly the event
+ * mix of a real payroll: mostly salaries, some bonuses and reimbursements, few joins and exits.
+ */
+final class BenchmarkData {
+
+    private static final String[] DESIGNATIONS = {"Software Engineer", "Architect", "Manager", "Analyst", "Designer"};
+    private static final String[] FIRST_NAMES = {"Bill", "Steve", "Larry", "Sergey", "Marissa", "Ada", "Grace", "Linus"};
+    private static final String[] LAST_NAMES = {"Gates", "Jobs", "Page", "Brin", "Mayer", "Lovelace", "Hopper", "Torvalds"};
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2015, 1, 1);
+    private static final int DAYS = 3650;
+
+    private BenchmarkData() {
+    }
+
+    static List<EventDTO> events(final int count) {
+        return events(0, count);
+    }
+
+    static List<EventDTO> events(final long firstSequenceNo, final int count) {
+        final Random random = new Random(42 + firstSequenceNo);
+        final int employees = Math.max(1, (int) ((firstSequenceNo + count) / 20));
+        final List<EventDTO> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int employee = random.nextInt(employees);
+            final int roll = random.nextInt(100);
+            final String type = roll < 70 ? "SALARY" : roll < 80 ? "BONUS" : roll < 90 ? "REIMBURSEMENT"
+                    : roll < 95 ? "ONBOARD" : "EXIT";
+            events.add(new EventDTO(Long.toString(firstSequenceNo + i + 1), "emp" + employee,
+                    FIRST_NAMES[employee % FIRST_NAMES.length], LAST_NAMES[employee % LAST_NAMES.length],
+                    DESIGNATIONS[employee % DESIGNATIONS.length], type, 100 + random.nextInt(10_000),
+                    FIRST_DAY.plusDays(random.nextInt(DAYS)), type.equals("SALARY") ? "" : "Synthetic " + type));
+        }
+        return events;
+    }
+
+    /**
+     * Wires a {@link PayrollServiceImpl} over the given store the way the application does.
+     *
+     * @param store the event store the service reports on
+     * @return the refreshed context holding the service
+     */
+    static AnnotationConfigApplicationContext serviceContext(final EventStore store) {
+        final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.registerBean("eventStore", EventStore.class, () -> store);
+        context.registerBean("uploadParserExecutor", ExecutorService.class, () -> Executors.newSingleThreadExecutor(),
+                bd -> bd.setDestroyMethodName("shutdown"));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(PayrollMetrics.class);
+        context.registerBean(IngestionLimiter.class);
+        context.registerBean(PayrollServiceImpl.class);
+        context.refresh();
+        return context;
+    }
+
+    static String csv(final List<EventDTO> events) {
+        final StringBuilder csv = new StringBuilder(events.size() * 96)
+                .append("SequenceNo,EmpID,EmpFName,EmpLName,Designation,Event,Value,EventDate,Notes\n");
+        for (final EventDTO event : events) {
+            csv.append(csvLine(event)).append('\n');
+        }
+        return csv.toString();
+    }
+
+    static String csvLine(final EventDTO event) {
+        return event.getSequenceNo() + ',' + event.getEmpId() + ',' + event.getFirstName() + ','
+                + event.getLastName() + ',' + event.getDesignation() + ',' + event.getEvent() + ','
+                + (long) event.getValue() + ',' + event.getEventDate().format(CSV_DATE) + ",\"" + event.getNotes() + '"';
+    }
+}
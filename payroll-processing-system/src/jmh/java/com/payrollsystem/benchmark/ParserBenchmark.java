@@ -0,0 +1,86 @@
+package com.payrollsystem.benchmark;
+
+import com.payrollsystem.parser.PayrollCsvParser;
+import com.payrollsystem.service.PayrollServiceImpl;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload parsing: single-line throughput, and the time to parse a whole file of {@link #rows}
+ * rows in memory and through {@code processFiles}, including the commit to an on-disk event log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private final PayrollCsvParser lineParser = new PayrollCsvParser();
+    private String line;
+    private String file;
+    private byte[] fileBytes;
+    private Path dataDir;
+    private AnnotationConfigApplicationContext context;
+    private PayrollServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        line = BenchmarkData.csvLine(BenchmarkData.events(1).get(0)) + '\n';
+        file = BenchmarkData.csv(BenchmarkData.events(rows));
+        fileBytes = file.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Iteration)
+    public void openStore() throws IOException {
+        dataDir = Files.createTempDirectory("payroll-bench-");
+        final EventLog log = new EventLog(dataDir.resolve("events"), 64L * 1024 * 1024);
+        log.open();
+        final EventStore store = new EventStore(log, dataDir.resolve("aggregates.json"), Long.MAX_VALUE);
+        store.load();
+        context = BenchmarkData.serviceContext(store);
+        service = context.getBean(PayrollServiceImpl.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeStore() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public void parseLine(final Blackhole blackhole) throws IOException {
+        lineParser.parse(new StringReader(line), blackhole::consume);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void parseFile(final Blackhole blackhole) throws IOException {
+        new PayrollCsvParser().parse(new StringReader(file), blackhole::consume);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object processFile() throws IOException {
+        return service.processFiles(List.of(new MockMultipartFile("files", "bench.csv", "text/csv", fileBytes)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.payrollsystem.benchmark;
+
+import com.payrollsystem.service.PayrollServiceImpl;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventStore;
+import com.payrollsystem.store.PeriodRange;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every report of {@link PayrollServiceImpl} over a resident store of {@link #events} events,
+ * all time and restricted to one year.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ReportBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int events;
+
+    private final PeriodRange year = PeriodRange.of(2020, null, null);
+    private Path dataDir;
+    private AnnotationConfigApplicationContext context;
+    private PayrollServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("payroll-bench-");
+        final EventLog log = new EventLog(dataDir.resolve("events"), 64L * 1024 * 1024);
+        log.open();
+        final EventStore store = new EventStore(log, dataDir.resolve("aggregates.json"), Long.MAX_VALUE);
+        store.load();
+        for (int written = 0; written < events; written += 100_000) {
+            store.append(BenchmarkData.events(written, Math.min(100_000, events - written)));
+        }
+        context = BenchmarkData.serviceContext(store);
+        service = context.getBean(PayrollServiceImpl.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public Object monthlySalaryReport() throws IOException {
+        return service.generateMonthlySalaryReport();
+    }
+
+    @Benchmark
+    public Object monthlySalaryReportForYear() throws IOException {
+        return service.generateMonthlySalaryReport(year);
+    }
+
+    @Benchmark
+    public Object yearlyFinancialReport() throws IOException {
+        return service.generateYearlyFinancialReport();
+    }
+
+    @Benchmark
+    public Object yearlyFinancialReportForYear() throws IOException {
+        return service.generateYearlyFinancialReport(year);
+    }
+
+    @Benchmark
+    public Object totalEmployees() throws IOException {
+        return service.getTotalEmployees();
+    }
+
+    @Benchmark
+    public Object monthlyJoins() throws IOException {
+        return service.getEmployeeEventsByMonth("ONBOARD");
+    }
+
+    @Benchmark
+    public Object monthlyJoinsForYear() throws IOException {
+        return service.getEmployeeEventsByMonth("ONBOARD", year);
+    }
+
+    @Benchmark
+    public Object employeeFinancialReport() throws IOException {
+        return service.getEmployeeFinancialReport();
+    }
+
+    @Benchmark
+    public Object monthlyAmountReport() throws IOException {
+        return service.getMonthlyAmountReport();
+    }
+}
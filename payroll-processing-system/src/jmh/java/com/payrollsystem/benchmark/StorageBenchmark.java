@@ -0,0 +1,83 @@
+package com.payrollsystem.benchmark;
+
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.store.BinaryEventLog;
+import com.payrollsystem.store.CompressedEventLog;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventStorage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading back {@link #events} events in each storage format. Writes append
+ * batches of {@value #BATCH_SIZE} events, as uploads do; reads load every event back.
+ * <p>
+ * The 10M case needs a large heap for {@code readAll}; narrow it with {@code -p events=10000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class StorageBenchmark {
+
+    private static final int BATCH_SIZE = 100_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int events;
+
+    @Param({"ndjson", "binary", "compressed"})
+    public String format;
+
+    private Path directory;
+    private EventStorage written;
+
+    @Setup(Level.Trial)
+    public void writeStorage() throws IOException {
+        directory = Files.createTempDirectory("payroll-bench-");
+        written = open(directory.resolve("read"));
+        append(written);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStorage() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public EventStorage writeRecords() throws IOException {
+        final Path target = directory.resolve("write");
+        FileSystemUtils.deleteRecursively(target);
+        final EventStorage storage = open(target);
+        append(storage);
+        return storage;
+    }
+
+    @Benchmark
+    public List<EventDTO> readRecords() throws IOException {
+        return written.readAll();
+    }
+
+    private EventStorage open(final Path target) throws IOException {
+        final EventStorage storage = switch (format) {
+            case "binary" -> new BinaryEventLog(target);
+            case "compressed" -> new CompressedEventLog(target);
+            default -> new EventLog(target, 64L * 1024 * 1024);
+        };
+        storage.open();
+        return storage;
+    }
+
+    private void append(final EventStorage storage) throws IOException {
+        for (int written = 0; written < events; written += BATCH_SIZE) {
+            storage.append(BenchmarkData.events(written, Math.min(BATCH_SIZE, events - written)));
+        }
+    }
+}
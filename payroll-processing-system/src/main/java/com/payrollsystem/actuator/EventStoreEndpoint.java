@@ -0,0 +1,39 @@
+package com.payrollsystem.actuator;
+
+import com.payrollsystem.store.EventStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the size of the resident event store at {@code /actuator/eventstore}.
+ */
+@Component
+@Endpoint(id = "eventstore")
+public class EventStoreEndpoint {
+
+    @Autowired
+    private EventStore eventStore;
+
+    /**
+     * Reports the event count, estimated heap usage of the columns and indexes, events covered by the last snapshot
+     * and memory budget of the event store.
+     *
+     * @return the event store statistics
+     */
+    @ReadOperation
+    public Map<String, Object> eventStore() {
+        final Map<String, Object> details = new LinkedHashMap<>();
+        details.put("resident", eventStore.isResident());
+        details.put("eventCount", eventStore.getEventCount());
+        details.put("estimatedBytes", eventStore.getEstimatedBytes());
+        details.put("indexEstimatedBytes", eventStore.getIndexEstimatedBytes());
+        details.put("snapshotEvents", eventStore.getSnapshotEvents());
+        details.put("memoryBudgetBytes", eventStore.getMemoryBudgetBytes());
+        return details;
+    }
+}
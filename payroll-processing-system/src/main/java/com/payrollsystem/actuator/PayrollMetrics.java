@@ -0,0 +1,118 @@
+package com.payrollsystem.actuator;
+
+import com.payrollsystem.exception.CustomExceptionEnum;
+import com.payrollsystem.parser.ParseResult;
+import com.payrollsystem.store.CommitResult;
+import com.payrollsystem.store.EventStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Domain metrics for the ingest and report paths, published through Micrometer at
+ * {@code /actuator/metrics} and {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code payroll.upload.rows.parsed}, {@code payroll.upload.rows.rejected}: rows per uploaded file</li>
+ *     <li>{@code payroll.upload.rows.duplicate}: rows skipped at commit as already ingested</li>
+ *     <li>{@code payroll.upload.rejected}: uploads shed by the ingestion limits, tagged by reason code</li>
+ *     <li>{@code payroll.upload.parse}, {@code payroll.upload.parse.throughput}: parse time and rows per second per file</li>
+ *     <li>{@code payroll.store.commit}, {@code payroll.store.commit.bytes}: commit latency and bytes written</li>
+ *     <li>{@code payroll.store.events}, {@code payroll.store.resident.bytes}, {@code payroll.store.disk.bytes}: store size</li>
+ *     <li>{@code payroll.report}: report computation latency histogram, tagged by report, recorded by
+ *     the {@code @Timed} report methods of the payroll service</li>
+ * </ul>
+ */
+@Component
+public class PayrollMetrics {
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private EventStore eventStore;
+
+    private Counter rowsParsed;
+    private Counter rowsRejected;
+    private Counter rowsDuplicate;
+    private Timer parseTimer;
+    private DistributionSummary parseThroughput;
+    private Timer commitTimer;
+    private Counter commitBytes;
+
+    @PostConstruct
+    void registerMeters() {
+        rowsParsed = Counter.builder("payroll.upload.rows.parsed")
+                .description("Rows parsed from uploaded files").register(registry);
+        rowsRejected = Counter.builder("payroll.upload.rows.rejected")
+                .description("Malformed rows skipped in uploaded files").register(registry);
+        rowsDuplicate = Counter.builder("payroll.upload.rows.duplicate")
+                .description("Uploaded rows skipped because their SequenceNo was already ingested").register(registry);
+        parseTimer = Timer.builder("payroll.upload.parse")
+                .description("Time to parse one uploaded file").register(registry);
+        parseThroughput = DistributionSummary.builder("payroll.upload.parse.throughput")
+                .description("Rows parsed per second, per uploaded file").baseUnit("rows/s").register(registry);
+        commitTimer = Timer.builder("payroll.store.commit")
+                .description("Latency of committing an upload batch to the event store")
+                .publishPercentileHistogram().register(registry);
+        commitBytes = Counter.builder("payroll.store.commit.bytes")
+                .description("Bytes written to the event storage").baseUnit("bytes").register(registry);
+        Gauge.builder("payroll.store.events", eventStore, EventStore::getEventCount)
+                .description("Events held by the event store").register(registry);
+        Gauge.builder("payroll.store.resident.bytes", eventStore, EventStore::getEstimatedBytes)
+                .description("Estimated heap used by the resident events").baseUnit("bytes").register(registry);
+        Gauge.builder("payroll.store.disk.bytes", eventStore, PayrollMetrics::storageBytes)
+                .description("Size of the event storage on disk").baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * Records the outcome of parsing one uploaded file.
+     *
+     * @param result      the parsed and rejected row counts
+     * @param elapsedNanos the time spent parsing
+     */
+    public void recordParse(final ParseResult result, final long elapsedNanos) {
+        rowsParsed.increment(result.getRowsParsed());
+        rowsRejected.increment(result.getRowsRejected());
+        parseTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (elapsedNanos > 0) {
+            parseThroughput.record(result.getRowsParsed() * 1e9 / elapsedNanos);
+        }
+    }
+
+    /**
+     * Counts an upload turned away by the ingestion limits.
+     *
+     * @param reason why the upload was rejected
+     */
+    public void recordRejectedUpload(final CustomExceptionEnum reason) {
+        registry.counter("payroll.upload.rejected", "reason", reason.getExceptionCode()).increment();
+    }
+
+    /**
+     * Records a commit to the event store.
+     *
+     * @param result       the bytes written and duplicates skipped by the commit
+     * @param elapsedNanos the commit latency
+     */
+    public void recordCommit(final CommitResult result, final long elapsedNanos) {
+        commitTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        commitBytes.increment(result.getBytesWritten());
+        rowsDuplicate.increment(result.getDuplicateCount());
+    }
+
+    private static double storageBytes(final EventStore store) {
+        try {
+            return store.getStorageBytes();
+        } catch (final IOException e) {
+            return Double.NaN;
+        }
+    }
+}
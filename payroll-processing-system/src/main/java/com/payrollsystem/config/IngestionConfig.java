@@ -0,0 +1,57 @@
+package com.payrollsystem.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures the thread pools used to ingest uploaded files.
+ */
+@Configuration
+public class IngestionConfig {
+
+    /**
+     * Creates the bounded pool that parses the files of a multi-file upload in parallel.
+     *
+     * @param parserThreads the number of parser threads, or 0 for one per available core
+     * @return the parser executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadParserExecutor(@Value("${payroll.upload.parser-threads:0}") final int parserThreads) {
+        final int threads = parserThreads > 0 ? parserThreads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Creates the pool that runs asynchronous upload jobs. Jobs beyond the workers wait in a
+     * bounded queue; once that is full, submissions are rejected.
+     *
+     * @param workers       the number of jobs run at the same time
+     * @param queueCapacity the number of jobs allowed to wait
+     * @return the job executor
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ingestionJobExecutor(@Value("${payroll.jobs.workers:2}") final int workers,
+                                                @Value("${payroll.jobs.queue-capacity:16}") final int queueCapacity) {
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Creates the single thread that hands asynchronous upload jobs back to the job pool once
+     * their retry delay has passed.
+     *
+     * @return the retry scheduler
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService ingestionRetryScheduler() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+}
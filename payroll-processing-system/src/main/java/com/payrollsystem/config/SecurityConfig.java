@@ -21,7 +21,8 @@ public class SecurityConfig {
      * <p>
      * This method configures the application to permit all HTTP requests,
      * disables CSRF protection for simplicity in non-browser API interaction,
-     * and configures default security headers to disable caching.
+     * and configures default security headers to disable caching. Responses that set their
+     * own {@code Cache-Control}, such as the ETag-tagged reports, keep it.
      *
      * @param http the {@link HttpSecurity} to configure
      * @return the configured {@link SecurityFilterChain}
@@ -0,0 +1,74 @@
+package com.payrollsystem.config;
+
+import com.payrollsystem.store.BinaryEventLog;
+import com.payrollsystem.store.CompressedEventLog;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventStorage;
+import com.payrollsystem.store.EventStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Configures the persistent storage used for payroll events.
+ */
+@Configuration
+@EnableScheduling
+public class StorageConfig {
+
+    private static final String LEGACY_DATA_FILE = "EmployeeData.json";
+
+    /**
+     * Opens the configured event storage, migrating the legacy JSON data file on first start.
+     * {@code payroll.storage.format} selects between the {@code ndjson} event log, the
+     * memory-mapped {@code binary} format and the block-{@code compressed} format.
+     *
+     * @param dataDir         the root data directory
+     * @param format          the storage format, {@code ndjson}, {@code binary} or {@code compressed}
+     * @param maxSegmentBytes the size after which the NDJSON log rolls over to a new segment
+     * @return the opened event storage
+     * @throws IOException if the storage cannot be opened or migrated
+     */
+    @Bean
+    public EventStorage eventStorage(@Value("${payroll.data.dir:data}") final String dataDir,
+                                     @Value("${payroll.storage.format:ndjson}") final String format,
+                                     @Value("${payroll.log.segment-max-bytes:67108864}") final long maxSegmentBytes) throws IOException {
+        final Path root = Paths.get(dataDir);
+        final EventStorage storage = switch (format) {
+            case "ndjson" -> new EventLog(root.resolve("events"), maxSegmentBytes);
+            case "binary" -> new BinaryEventLog(root.resolve("binary"));
+            case "compressed" -> new CompressedEventLog(root.resolve("compressed"));
+            default -> throw new IllegalArgumentException("Unknown payroll.storage.format: " + format);
+        };
+        storage.open();
+        storage.migrateFrom(root.resolve(LEGACY_DATA_FILE));
+        return storage;
+    }
+
+    /**
+     * Creates the resident event store and loads the latest snapshot, the log tail after it and
+     * the report aggregates into it.
+     *
+     * @param eventStorage      the event storage backing the store
+     * @param dataDir           the root data directory
+     * @param memoryBudgetBytes the maximum estimated heap the resident events may use
+     * @param checkpointEvents  the number of committed events after which the aggregates are checkpointed
+     * @return the loaded event store
+     * @throws IOException if the storage cannot be read
+     */
+    @Bean
+    public EventStore eventStore(final EventStorage eventStorage,
+                                 @Value("${payroll.data.dir:data}") final String dataDir,
+                                 @Value("${payroll.store.memory-budget-bytes:536870912}") final long memoryBudgetBytes,
+                                 @Value("${payroll.aggregates.checkpoint-events:100000}") final long checkpointEvents) throws IOException {
+        final EventStore eventStore = new EventStore(eventStorage, Paths.get(dataDir, "aggregates.json"),
+                Paths.get(dataDir, "snapshot.bin"), memoryBudgetBytes, checkpointEvents);
+        eventStore.load();
+        return eventStore;
+    }
+}
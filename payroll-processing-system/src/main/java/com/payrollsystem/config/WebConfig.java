@@ -0,0 +1,24 @@
+package com.payrollsystem.config;
+
+import com.payrollsystem.controller.ReportETagInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the web interceptors for the payroll API.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ReportETagInterceptor reportETagInterceptor;
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(reportETagInterceptor)
+                .addPathPatterns("/api/payroll/**")
+                .excludePathPatterns("/api/payroll/upload", "/api/payroll/upload/**", "/api/payroll/jobs/**");
+    }
+}
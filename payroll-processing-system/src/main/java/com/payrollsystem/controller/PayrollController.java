@@ -1,19 +1,45 @@
 package com.payrollsystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.payrollsystem.dto.*;
+import com.payrollsystem.exception.CustomException;
+import com.payrollsystem.exception.IngestionRejectedException;
+import com.payrollsystem.exception.InvalidPeriodException;
+import com.payrollsystem.exception.InvalidQueryException;
+import com.payrollsystem.response.BaseResponse;
 import com.payrollsystem.response.PayrollProcessingResponse;
+import com.payrollsystem.service.IngestionJob;
+import com.payrollsystem.service.IngestionJobService;
+import com.payrollsystem.service.IngestionLimiter;
 import com.payrollsystem.service.PayrollService;
+import com.payrollsystem.store.AggregationQuery;
+import com.payrollsystem.store.PeriodRange;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import static com.payrollsystem.exception.CustomExceptionEnum.INTERNAL_EXCEPTION;
+import static com.payrollsystem.exception.CustomExceptionEnum.INVALID_AGGREGATION_QUERY;
+import static com.payrollsystem.exception.CustomExceptionEnum.INVALID_REPORT_PERIOD;
+import static com.payrollsystem.exception.CustomExceptionEnum.JOB_NOT_FOUND;
+import static com.payrollsystem.exception.CustomExceptionEnum.JOB_QUEUE_FULL;
 import static com.payrollsystem.exception.CustomExceptionEnum.NO_FILE_FOUND;
+import static com.payrollsystem.exception.CustomExceptionEnum.UPLOAD_TOO_LARGE;
 
 /**
  * Controller for handling payroll-related requests.
@@ -22,14 +48,30 @@ import static com.payrollsystem.exception.CustomExceptionEnum.NO_FILE_FOUND;
 @RequestMapping("/api/payroll")
 public class PayrollController {
 
+    private static final Logger LOGGER = LogManager.getLogger(PayrollController.class);
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int MAX_PAGE_LIMIT = 10_000;
+    private static final int STREAM_FLUSH_ENTRIES = 4096;
+
     @Autowired
     private PayrollService payrollService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @Autowired
+    private IngestionLimiter ingestionLimiter;
+
     /**
-     * Uploads and processes a payroll file.
+     * Uploads and processes payroll files. The files are parsed in parallel and their events
+     * committed together.
      *
      * @param files the files to be uploaded
-     * @return a response entity with the processing results
+     * @return a response entity with the processing results, or 429 with {@code Retry-After}
+     * when too many uploads are in flight
      */
     @PostMapping("/upload")
     public ResponseEntity<PayrollProcessingResponse> uploadFile(@RequestParam("files") final MultipartFile[] files) {
@@ -38,44 +80,94 @@ public class PayrollController {
                     List.of(NO_FILE_FOUND.getExceptionDescription()), true), HttpStatus.BAD_REQUEST);
         }
         try {
-            final List<EventDTO> allEvents = new ArrayList<>();
-            final List<String> errorDescriptions = new ArrayList<>();
-            boolean allSuccess = true;
-
-            for (final MultipartFile file : files) {
-                final PayrollProcessingResponse res = payrollService.processFile(file);
-                if (res.isSuccess()) {
-                    if (res.getEvents() != null) {
-                        allEvents.addAll(res.getEvents());
-                    }
-                } else {
-                    allSuccess = false;
-                    if (res.getErrorDescriptions() != null) {
-                        errorDescriptions.addAll(res.getErrorDescriptions());
-                    }
-                }
-                System.out.println("File processed: " + file.getOriginalFilename() + ", Success: " + res.isSuccess());
+            final List<PayrollProcessingResponse> responses = payrollService.processFiles(Arrays.asList(files));
+            for (int i = 0; i < files.length; i++) {
+                LOGGER.debug("File processed: {}, success: {}", files[i].getOriginalFilename(), responses.get(i).isSuccess());
             }
-            System.out.println("Final Success Status: " + allSuccess);
-            final PayrollProcessingResponse finalResponse = allSuccess ?
-                    new PayrollProcessingResponse(true, allEvents) :
-                    new PayrollProcessingResponse(false, errorDescriptions, true);
+            final PayrollProcessingResponse finalResponse = PayrollProcessingResponse.combine(responses);
+            final boolean allSuccess = finalResponse.isSuccess();
+            LOGGER.debug("Upload of {} file(s) finished, success: {}", files.length, allSuccess);
 
             return new ResponseEntity<>(finalResponse, allSuccess ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
+        } catch (final IngestionRejectedException e) {
+            return rejected(e);
+        } catch (final Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams a single payroll file from the request body, parsing it as it arrives and
+     * committing it in bounded chunks, so uploads of any size are taken in constant memory.
+     * The body may be gzip-compressed, as a {@code .csv.gz} file or with
+     * {@code Content-Encoding: gzip}.
+     *
+     * @param request the request whose body is the CSV file
+     * @return a response entity with the processing result, or 429 with {@code Retry-After}
+     * when too many uploads are in flight
+     */
+    @PostMapping(value = "/upload/stream", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE, "application/gzip"})
+    public ResponseEntity<PayrollProcessingResponse> uploadStream(final HttpServletRequest request) {
+        try (final InputStream body = request.getInputStream()) {
+            return new ResponseEntity<>(payrollService.processStream(body), HttpStatus.OK);
+        } catch (final IngestionRejectedException e) {
+            return rejected(e);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
     /**
-     * Retrieves monthly salary reports.
+     * Queues payroll files for background processing and returns immediately with a job
+     * that can be polled through {@link #getJob(String)}.
      *
+     * @param files the files to be uploaded
+     * @return the queued job, or 503 if the job queue is full
+     */
+    @PostMapping(value = "/upload", params = "async=true")
+    public ResponseEntity<BaseResponse> uploadFileAsync(@RequestParam("files") final MultipartFile[] files) {
+        if (files == null || files.length == 0) {
+            return new ResponseEntity<>(new PayrollProcessingResponse(false,
+                    List.of(NO_FILE_FOUND.getExceptionDescription()), true), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            final IngestionJob job = ingestionJobService.submit(Arrays.asList(files));
+            return new ResponseEntity<>(job.toResponse(), HttpStatus.ACCEPTED);
+        } catch (final CustomException e) {
+            return new ResponseEntity<>(JOB_QUEUE_FULL.getResponse(), HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (final Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Retrieves the status, progress and, once finished, the result of an upload job.
+     *
+     * @param jobId the job id returned by the asynchronous upload
+     * @return the job status, or 404 if the job is unknown
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<BaseResponse> getJob(@PathVariable final String jobId) {
+        return ingestionJobService.getJob(jobId)
+                .<ResponseEntity<BaseResponse>>map(job -> new ResponseEntity<>(job.toResponse(), HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(JOB_NOT_FOUND.getResponse(), HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Retrieves monthly salary reports, across all time by month name or, when bounded, by
+     * year-month.
+     *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
      * @return a list of monthly salary reports
      */
     @GetMapping("/monthly-salary")
-    public ResponseEntity<List<MonthlyReportDTO>> getMonthlySalaryReport() {
+    public ResponseEntity<List<MonthlyReportDTO>> getMonthlySalaryReport(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
         try {
-            final List<MonthlyReportDTO> reports = payrollService.generateMonthlySalaryReport();
+            final List<MonthlyReportDTO> reports = range.isAll()
+                    ? payrollService.generateMonthlySalaryReport()
+                    : payrollService.generateMonthlySalaryReport(range);
             return new ResponseEntity<>(reports, HttpStatus.OK);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -85,12 +177,16 @@ public class PayrollController {
     /**
      * Retrieves yearly financial reports.
      *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
      * @return a list of yearly financial reports
      */
     @GetMapping("/yearly-financial")
-    public ResponseEntity<List<YearlyFinancialReportDTO>> getYearlyFinancialReport() {
+    public ResponseEntity<List<YearlyFinancialReportDTO>> getYearlyFinancialReport(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
         try {
-            final List<YearlyFinancialReportDTO> reports = payrollService.generateYearlyFinancialReport();
+            final List<YearlyFinancialReportDTO> reports = range.isAll()
+                    ? payrollService.generateYearlyFinancialReport()
+                    : payrollService.generateYearlyFinancialReport(range);
             return new ResponseEntity<>(reports, HttpStatus.OK);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -98,14 +194,68 @@ public class PayrollController {
     }
 
     /**
-     * Gets the total number of employees.
+     * Retrieves one page of the yearly financial report.
      *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
+     * @param cursor the cursor returned with the previous page, or 0 for the first page
+     * @param limit  the maximum number of entries in the page, up to {@value #MAX_PAGE_LIMIT}
+     * @return the page of yearly financial reports and the cursor of the next page
+     */
+    @GetMapping(value = "/yearly-financial", params = "limit")
+    public ResponseEntity<YearlyFinancialReportPageDTO> getYearlyFinancialReportPage(
+            final ReportPeriodDTO period,
+            @RequestParam(value = "cursor", defaultValue = "0") final long cursor,
+            @RequestParam("limit") final int limit) {
+        final PeriodRange range = toRange(period);
+        if (cursor < 0 || limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(payrollService.generateYearlyFinancialReport(range, cursor, limit), HttpStatus.OK);
+        } catch (final Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Streams the yearly financial report as newline-delimited JSON. Entries are written as
+     * they are read from a single view of the events, so memory use does not grow with the
+     * size of the report and the stream never mixes in uploads made while it is written.
+     *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
+     * @return the streamed yearly financial report
+     */
+    @GetMapping(value = "/yearly-financial", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamYearlyFinancialReport(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
+        final StreamingResponseBody body = out -> {
+            final ObjectWriter writer = objectMapper.writerFor(YearlyFinancialReportDTO.class);
+            final int[] written = new int[1];
+            payrollService.streamYearlyFinancialReport(range, report -> {
+                out.write(writer.writeValueAsBytes(report));
+                out.write('\n');
+                if (++written[0] % STREAM_FLUSH_ENTRIES == 0) {
+                    out.flush();
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     * Gets the total number of employees, or of employees with events in range when bounded.
+     *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
      * @return the total number of employees
      */
     @GetMapping("/total-employees")
-    public ResponseEntity<Integer> getTotalEmployees() {
+    public ResponseEntity<Integer> getTotalEmployees(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
         try {
-            final int totalEmployees = payrollService.getTotalEmployees();
+            final int totalEmployees = range.isAll()
+                    ? payrollService.getTotalEmployees()
+                    : payrollService.getTotalEmployees(range);
             return new ResponseEntity<>(totalEmployees, HttpStatus.OK);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -113,14 +263,18 @@ public class PayrollController {
     }
 
     /**
-     * Retrieves monthly joining events.
+     * Retrieves monthly joining events, grouped by month or, when bounded, by year-month.
      *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
      * @return a map of monthly joining events
      */
     @GetMapping("/monthly-joins")
-    public ResponseEntity<Map<String, List<EventDTO>>> getMonthlyJoins() {
+    public ResponseEntity<Map<String, List<EventDTO>>> getMonthlyJoins(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
         try {
-            final Map<String, List<EventDTO>> monthlyJoins = payrollService.getEmployeeEventsByMonth("ONBOARD");
+            final Map<String, List<EventDTO>> monthlyJoins = range.isAll()
+                    ? payrollService.getEmployeeEventsByMonth("ONBOARD")
+                    : payrollService.getEmployeeEventsByMonth("ONBOARD", range);
             return new ResponseEntity<>(monthlyJoins, HttpStatus.OK);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -128,14 +282,18 @@ public class PayrollController {
     }
 
     /**
-     * Retrieves monthly exit events.
+     * Retrieves monthly exit events, grouped by month or, when bounded, by year-month.
      *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
      * @return a map of monthly exit events
      */
     @GetMapping("/monthly-exits")
-    public ResponseEntity<Map<String, List<EventDTO>>> getMonthlyExits() {
+    public ResponseEntity<Map<String, List<EventDTO>>> getMonthlyExits(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
         try {
-            final Map<String, List<EventDTO>> monthlyExits = payrollService.getEmployeeEventsByMonth("EXIT");
+            final Map<String, List<EventDTO>> monthlyExits = range.isAll()
+                    ? payrollService.getEmployeeEventsByMonth("EXIT")
+                    : payrollService.getEmployeeEventsByMonth("EXIT", range);
             return new ResponseEntity<>(monthlyExits, HttpStatus.OK);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -143,14 +301,18 @@ public class PayrollController {
     }
 
     /**
-     * Retrieves financial reports for employees.
+     * Retrieves financial reports for employees, counting only the amounts paid in range when bounded.
      *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
      * @return a list of employee financial reports
      */
     @GetMapping("/employee-financial-report")
-    public ResponseEntity<List<EmployeeFinancialReportDTO>> getEmployeeFinancialReport() {
+    public ResponseEntity<List<EmployeeFinancialReportDTO>> getEmployeeFinancialReport(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
         try {
-            final List<EmployeeFinancialReportDTO> reports = payrollService.getEmployeeFinancialReport();
+            final List<EmployeeFinancialReportDTO> reports = range.isAll()
+                    ? payrollService.getEmployeeFinancialReport()
+                    : payrollService.getEmployeeFinancialReport(range);
             return new ResponseEntity<>(reports, HttpStatus.OK);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -158,17 +320,106 @@ public class PayrollController {
     }
 
     /**
-     * Retrieves monthly amount reports.
+     * Retrieves monthly amount reports, across all time by month or, when bounded, by year-month.
      *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
      * @return a list of monthly amount reports
      */
     @GetMapping("/monthly-amount")
-    public ResponseEntity<List<MonthlyAmountReportDTO>> getMonthlyAmountReport() {
+    public ResponseEntity<List<MonthlyAmountReportDTO>> getMonthlyAmountReport(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
         try {
-            final List<MonthlyAmountReportDTO> reports = payrollService.getMonthlyAmountReport();
+            final List<MonthlyAmountReportDTO> reports = range.isAll()
+                    ? payrollService.getMonthlyAmountReport()
+                    : payrollService.getMonthlyAmountReport(range);
             return new ResponseEntity<>(reports, HttpStatus.OK);
         } catch (final Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    /**
+     * Retrieves everything the dashboard shows in one response, computed from a single read so
+     * the summaries agree with each other. Each summary has the same shape as the matching
+     * report endpoint for the same period.
+     *
+     * @param period the optional {@code year}, {@code from} and {@code to} ({@code yyyy-MM}) bounds
+     * @return the dashboard summaries
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<DashboardDTO> getDashboard(final ReportPeriodDTO period) {
+        final PeriodRange range = toRange(period);
+        try {
+            return new ResponseEntity<>(payrollService.getDashboard(range), HttpStatus.OK);
+        } catch (final Exception e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Runs an ad-hoc aggregation, for example
+     * {@code ?event=BONUS&year=2023&groupBy=designation,quarter&aggregate=sum}. Events can be
+     * filtered on {@code event}, {@code empId}, {@code designation} and the usual period
+     * parameters, grouped by up to three of {@code event}, {@code empId}, {@code designation},
+     * {@code month}, {@code quarter} and {@code year}, and aggregated with {@code sum} (the
+     * default), {@code count}, {@code min}, {@code max} or {@code avg}.
+     *
+     * @param request the filters, group-by dimensions and aggregate function
+     * @return one row per group
+     * @throws IOException if the events cannot be read, answered by {@link #handleReadFailure}
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<List<AggregationRowDTO>> aggregate(final AggregationQueryDTO request) throws IOException {
+        final AggregationQuery query = AggregationQuery.of(request.getEvent(), request.getEmpId(),
+                request.getDesignation(), PeriodRange.of(request.getYear(), request.getFrom(), request.getTo()),
+                request.getGroupBy(), request.getAggregate());
+        return new ResponseEntity<>(payrollService.aggregate(query), HttpStatus.OK);
+    }
+
+    /**
+     * Rejects report periods that end before they start.
+     *
+     * @param e the exception raised while building the period
+     * @return a bad request response
+     */
+    @ExceptionHandler(InvalidPeriodException.class)
+    public ResponseEntity<BaseResponse> handleInvalidPeriod(final InvalidPeriodException e) {
+        return new ResponseEntity<>(INVALID_REPORT_PERIOD.getResponse(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Answers requests whose events could not be read with the internal error response.
+     *
+     * @param e the exception raised while reading the events
+     * @return an internal server error response
+     */
+    @ExceptionHandler(IOException.class)
+    public ResponseEntity<BaseResponse> handleReadFailure(final IOException e) {
+        return new ResponseEntity<>(INTERNAL_EXCEPTION.getResponse(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Rejects aggregation queries with unknown or too many dimensions, or an unknown function.
+     *
+     * @param e the exception raised while building or running the query
+     * @return a bad request response
+     */
+    @ExceptionHandler(InvalidQueryException.class)
+    public ResponseEntity<BaseResponse> handleInvalidQuery(final InvalidQueryException e) {
+        return new ResponseEntity<>(INVALID_AGGREGATION_QUERY.getResponse(), HttpStatus.BAD_REQUEST);
+    }
+
+    private ResponseEntity<PayrollProcessingResponse> rejected(final IngestionRejectedException e) {
+        if (e.getReason() == UPLOAD_TOO_LARGE) {
+            return new ResponseEntity<>(new PayrollProcessingResponse(e.getReason().getResponse()),
+                    HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ingestionLimiter.getRetryAfterSeconds()))
+                .body(new PayrollProcessingResponse(e.getReason().getResponse()));
+    }
+
+    private static PeriodRange toRange(final ReportPeriodDTO period) {
+        return PeriodRange.of(period.getYear(), period.getFrom(), period.getTo());
+    }
 }
@@ -0,0 +1,40 @@
+package com.payrollsystem.controller;
+
+import com.payrollsystem.store.EventStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Tags report responses with an ETag derived from the event store's data version and answers
+ * conditional GETs whose {@code If-None-Match} still matches with 304 Not Modified, before the
+ * report is computed or serialized.
+ * <p>
+ * The tag combines the version with the start time of this instance, so tags handed out before
+ * a restart never match. Responses are marked {@code no-cache}, so clients and proxies may keep
+ * them but must revalidate on every poll.
+ */
+@Component
+public class ReportETagInterceptor implements HandlerInterceptor {
+
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response,
+                             final Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        final String etag = "\"" + instanceTag + "-" + eventStore.getVersion() + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+}
@@ -0,0 +1,25 @@
+package com.payrollsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.YearMonth;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AggregationQueryDTO {
+    private String event;
+    private String empId;
+    private String designation;
+    private Integer year;
+    @DateTimeFormat(pattern = "yyyy-MM")
+    private YearMonth from;
+    @DateTimeFormat(pattern = "yyyy-MM")
+    private YearMonth to;
+    private List<String> groupBy;
+    private String aggregate;
+}
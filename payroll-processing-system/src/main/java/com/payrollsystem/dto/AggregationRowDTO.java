@@ -0,0 +1,16 @@
+package com.payrollsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AggregationRowDTO {
+    private Map<String, String> group;
+    private double value;
+    private long count;
+}
@@ -0,0 +1,20 @@
+package com.payrollsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DashboardDTO {
+    private List<MonthlyReportDTO> monthlySalary;
+    private List<MonthlyAmountReportDTO> monthlyAmount;
+    private List<EmployeeFinancialReportDTO> employeeFinancial;
+    private int totalEmployees;
+    private Map<String, List<EventDTO>> monthlyJoins;
+    private Map<String, List<EventDTO>> monthlyExits;
+}
@@ -0,0 +1,19 @@
+package com.payrollsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.YearMonth;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReportPeriodDTO {
+    private Integer year;
+    @DateTimeFormat(pattern = "yyyy-MM")
+    private YearMonth from;
+    @DateTimeFormat(pattern = "yyyy-MM")
+    private YearMonth to;
+}
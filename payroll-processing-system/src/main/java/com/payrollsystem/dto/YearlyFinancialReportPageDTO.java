@@ -0,0 +1,15 @@
+package com.payrollsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class YearlyFinancialReportPageDTO {
+    private List<YearlyFinancialReportDTO> items;
+    private Long nextCursor;
+}
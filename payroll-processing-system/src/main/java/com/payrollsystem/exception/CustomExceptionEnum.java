@@ -14,6 +14,12 @@ public enum CustomExceptionEnum {
 
     NO_FILE_FOUND("400-002", "No file uploaded or file is empty"),
     ERROR_PROCESSING_FILE("400-003", "Error processing file"),
+    INVALID_REPORT_PERIOD("400-004", "Report period ends before it starts"),
+    INVALID_AGGREGATION_QUERY("400-005", "Unknown or too many group-by dimensions, or unknown aggregate function"),
+    JOB_NOT_FOUND("404-001", "Upload job not found"),
+    JOB_QUEUE_FULL("503-001", "Upload job queue is full, retry later"),
+    INGESTION_BUSY("429-001", "Too many uploads in progress, retry later"),
+    UPLOAD_TOO_LARGE("413-001", "Upload has more rows than the ingestion buffer allows"),
     INTERNAL_EXCEPTION("400-001", "Internal Error has been occurred.");
 
     private static final Map<String, CustomExceptionEnum> map = new HashMap<>();
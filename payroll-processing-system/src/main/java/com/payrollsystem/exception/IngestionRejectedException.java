@@ -0,0 +1,25 @@
+package com.payrollsystem.exception;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an upload is turned away because the ingestion limits leave no room for it.
+ * It is an {@link IOException} so it can be raised from inside a parse.
+ */
+@Getter
+public class IngestionRejectedException extends IOException {
+
+    private final CustomExceptionEnum reason;
+
+    /**
+     * Constructor for IngestionRejectedException.
+     *
+     * @param reason the reason the upload was rejected.
+     */
+    public IngestionRejectedException(final CustomExceptionEnum reason) {
+        super(reason.getExceptionDescription());
+        this.reason = reason;
+    }
+}
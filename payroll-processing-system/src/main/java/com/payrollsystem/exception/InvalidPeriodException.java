@@ -0,0 +1,17 @@
+package com.payrollsystem.exception;
+
+/**
+ * Thrown when a report period ends before it starts. It is an
+ * {@link IllegalArgumentException} as it is raised while validating request parameters.
+ */
+public class InvalidPeriodException extends IllegalArgumentException {
+
+    /**
+     * Constructor for InvalidPeriodException.
+     *
+     * @param message the detail message.
+     */
+    public InvalidPeriodException(final String message) {
+        super(message);
+    }
+}
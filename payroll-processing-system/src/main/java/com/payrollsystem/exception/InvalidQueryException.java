@@ -0,0 +1,18 @@
+package com.payrollsystem.exception;
+
+/**
+ * Thrown when an aggregation query names an unknown group-by dimension or aggregate function,
+ * or asks for more dimensions than a query can group by. It is an
+ * {@link IllegalArgumentException} as it is raised while validating request parameters.
+ */
+public class InvalidQueryException extends IllegalArgumentException {
+
+    /**
+     * Constructor for InvalidQueryException.
+     *
+     * @param message the detail message.
+     */
+    public InvalidQueryException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.payrollsystem.generator;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+
+/**
+ * Settings of the synthetic payroll data generator.
+ * <p>
+ * Every employee onboards once within the history and is paid a salary at the end of every
+ * month they are employed. Bonuses and reimbursements are drawn per employee-month and exits
+ * per employee, so the event mix follows from the rates below.
+ */
+@Data
+@NoArgsConstructor
+public class GeneratorConfig {
+    private int employees = 1000;
+    private int months = 24;
+    private YearMonth endMonth = YearMonth.now();
+    private double bonusRate = 0.05;
+    private double reimbursementRate = 0.15;
+    private double exitRate = 0.1;
+    private double quotedNotesRate = 0.1;
+    private double malformedRate = 0.0;
+    private int files = 1;
+    private long seed = 42;
+}
@@ -0,0 +1,290 @@
+package com.payrollsystem.generator;
+
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.store.BinaryEventLog;
+import com.payrollsystem.store.CompressedEventLog;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventStorage;
+import com.payrollsystem.store.ReportAggregates;
+import com.payrollsystem.util.ObjectMapperUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Command line generator of realistic synthetic payroll data, either as upload files in the
+ * {@code SequenceNo,EmpID,EmpFName,EmpLName,Designation,Event,Value,EventDate,Notes} format or
+ * as a ready-populated data folder for the application to start on.
+ * <pre>
+ * PayrollDataGenerator csv uploads/payroll.csv --employees=5000 --months=36 --malformed-rate=0.001
+ * PayrollDataGenerator store data --employees=100000 --months=120 --format=binary
+ * </pre>
+ * Options: {@code --employees}, {@code --months}, {@code --end=yyyy-MM}, {@code --bonus-rate},
+ * {@code --reimbursement-rate}, {@code --exit-rate}, {@code --quoted-notes-rate},
+ * {@code --malformed-rate}, {@code --files}, {@code --seed}, and for {@code store} also
+ * {@code --format=ndjson|binary|compressed}.
+ */
+public class PayrollDataGenerator {
+
+    private static final String HEADER = "SequenceNo,EmpID,EmpFName,EmpLName,Designation,Event,Value,EventDate,Notes";
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private static final int BATCH_SIZE = 100_000;
+    private static final String[] FIRST_NAMES = {"Bill", "Steve", "Larry", "Sergey", "Marissa", "Elon", "Mark",
+            "Ada", "Grace", "Linus", "Margaret", "Alan", "Barbara", "Ken", "Frances", "Dennis"};
+    private static final String[] LAST_NAMES = {"Gates", "Jobs", "Page", "Brin", "Mayer", "Musk", "Zuckerberg",
+            "Lovelace", "Hopper", "Torvalds", "Hamilton", "Turing", "Liskov", "Thompson", "Allen", "Ritchie"};
+    private static final String[] DESIGNATIONS = {"Software Engineer", "Architect", "Product Manager",
+            "Data Scientist", "VP of Marketing", "Analyst", "Designer", "Support Engineer"};
+    private static final String[] REIMBURSEMENTS = {"Travel", "Internet", "Relocation", "Training", "Equipment"};
+
+    private final GeneratorConfig config;
+
+    public PayrollDataGenerator(final GeneratorConfig config) {
+        this.config = config;
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2 || !("csv".equals(args[0]) || "store".equals(args[0]))) {
+            System.err.println("Usage: PayrollDataGenerator (csv <file> | store <data dir> [--format=ndjson|binary|compressed]) [--option=value...]");
+            System.exit(1);
+        }
+        final GeneratorConfig config = new GeneratorConfig();
+        String format = "ndjson";
+        for (int i = 2; i < args.length; i++) {
+            final String[] option = args[i].replaceFirst("^--", "").split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Options take the form --name=value: " + args[i]);
+            }
+            switch (option[0]) {
+                case "employees" -> config.setEmployees(Integer.parseInt(option[1]));
+                case "months" -> config.setMonths(Integer.parseInt(option[1]));
+                case "end" -> config.setEndMonth(YearMonth.parse(option[1]));
+                case "bonus-rate" -> config.setBonusRate(Double.parseDouble(option[1]));
+                case "reimbursement-rate" -> config.setReimbursementRate(Double.parseDouble(option[1]));
+                case "exit-rate" -> config.setExitRate(Double.parseDouble(option[1]));
+                case "quoted-notes-rate" -> config.setQuotedNotesRate(Double.parseDouble(option[1]));
+                case "malformed-rate" -> config.setMalformedRate(Double.parseDouble(option[1]));
+                case "files" -> config.setFiles(Integer.parseInt(option[1]));
+                case "seed" -> config.setSeed(Long.parseLong(option[1]));
+                case "format" -> format = option[1];
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        final PayrollDataGenerator generator = new PayrollDataGenerator(config);
+        final Path target = Paths.get(args[1]);
+        if ("csv".equals(args[0])) {
+            final long rows = generator.writeCsv(target);
+            System.out.println("Wrote " + rows + " rows to " + config.getFiles() + " file(s) at " + target);
+        } else {
+            final long events = generator.populateStore(target, format);
+            System.out.println("Stored " + events + " events in " + target);
+        }
+    }
+
+    /**
+     * Writes the generated events as upload files. With more than one file, the rows are split
+     * into consecutive runs written to {@code name-1.csv}, {@code name-2.csv} and so on.
+     *
+     * @param file the file to write, or the name pattern of the files
+     * @return the number of rows written, malformed rows included
+     * @throws IOException if a file cannot be written
+     */
+    public long writeCsv(final Path file) throws IOException {
+        final long perFile = config.getFiles() > 1
+                ? Math.max(1, (count() + config.getFiles() - 1) / config.getFiles())
+                : Long.MAX_VALUE;
+        final Random noise = new Random(config.getSeed() + 1);
+        final long[] written = new long[1];
+        final Writer[] out = new Writer[1];
+        try {
+            generate(event -> {
+                try {
+                    if (written[0] % perFile == 0) {
+                        if (out[0] != null) {
+                            out[0].close();
+                        }
+                        out[0] = Files.newBufferedWriter(filePath(file, (int) (written[0] / perFile) + 1), StandardCharsets.UTF_8);
+                        out[0].write(HEADER);
+                        out[0].write('\n');
+                    }
+                    out[0].write(noise.nextDouble() < config.getMalformedRate() ? malformed(event, noise) : csvLine(event, noise));
+                    out[0].write('\n');
+                    written[0]++;
+                } catch (final IOException e) {
+                    throw new IllegalStateException("Failed to write " + file, e);
+                }
+            });
+        } finally {
+            if (out[0] != null) {
+                out[0].close();
+            }
+        }
+        return written[0];
+    }
+
+    /**
+     * Populates an empty data folder with the generated events and the matching report
+     * aggregates, laid out as the application expects for the given storage format.
+     *
+     * @param dataDir the data folder, as set by {@code payroll.data.dir}
+     * @param format  the storage format, {@code ndjson}, {@code binary} or {@code compressed}
+     * @return the number of events stored
+     * @throws IOException if the storage cannot be written or already holds events
+     */
+    public long populateStore(final Path dataDir, final String format) throws IOException {
+        final EventStorage storage = switch (format) {
+            case "ndjson" -> new EventLog(dataDir.resolve("events"), 64L * 1024 * 1024);
+            case "binary" -> new BinaryEventLog(dataDir.resolve("binary"));
+            case "compressed" -> new CompressedEventLog(dataDir.resolve("compressed"));
+            default -> throw new IllegalArgumentException("Unknown storage format: " + format);
+        };
+        storage.open();
+        if (!storage.isEmpty()) {
+            throw new IOException("Refusing to generate into non-empty storage at " + dataDir);
+        }
+        final ReportAggregates aggregates = new ReportAggregates();
+        final List<EventDTO> batch = new ArrayList<>(BATCH_SIZE);
+        final Consumer<List<EventDTO>> commit = records -> {
+            try {
+                storage.append(records);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Failed to write storage at " + dataDir, e);
+            }
+            aggregates.apply(records);
+            records.clear();
+        };
+        generate(event -> {
+            batch.add(event);
+            if (batch.size() == BATCH_SIZE) {
+                commit.accept(batch);
+            }
+        });
+        commit.accept(batch);
+        ObjectMapperUtil.getMapper().writeValue(dataDir.resolve("aggregates.json").toFile(), aggregates);
+        return aggregates.getEventCount();
+    }
+
+    /**
+     * Generates the events in date order, month by month, without holding more than the
+     * per-employee state in memory.
+     *
+     * @param sink the receiver of the generated events
+     */
+    public void generate(final Consumer<EventDTO> sink) {
+        final Random random = new Random(config.getSeed());
+        final int employees = config.getEmployees();
+        final int months = config.getMonths();
+        final YearMonth start = config.getEndMonth().minusMonths(months - 1L);
+        final int[] joinMonth = new int[employees];
+        final int[] exitMonth = new int[employees];
+        final double[] salary = new double[employees];
+        for (int e = 0; e < employees; e++) {
+            // most employees join early in the history, fewer as time goes on
+            final double r = random.nextDouble();
+            joinMonth[e] = (int) (months * r * r);
+            exitMonth[e] = random.nextDouble() < config.getExitRate() && joinMonth[e] < months - 1
+                    ? joinMonth[e] + 1 + random.nextInt(months - 1 - joinMonth[e])
+                    : Integer.MAX_VALUE;
+            salary[e] = 3000 + random.nextInt(120) * 100;
+        }
+        long sequenceNo = 0;
+        for (int m = 0; m < months; m++) {
+            final YearMonth month = start.plusMonths(m);
+            final String monthName = month.getMonth().getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+            for (int e = 0; e < employees; e++) {
+                if (m < joinMonth[e] || m > exitMonth[e]) {
+                    continue;
+                }
+                final String empId = String.format("emp%06d", e + 1);
+                final String firstName = FIRST_NAMES[e % FIRST_NAMES.length];
+                final String lastName = LAST_NAMES[(e / FIRST_NAMES.length) % LAST_NAMES.length];
+                final String designation = DESIGNATIONS[e % DESIGNATIONS.length];
+                if (m == joinMonth[e]) {
+                    sink.accept(new EventDTO(Long.toString(++sequenceNo), empId, firstName, lastName, designation,
+                            "ONBOARD", salary[e], day(month, random),
+                            firstName + " " + lastName + " joins as " + designation + "."));
+                }
+                if (random.nextDouble() < config.getBonusRate()) {
+                    sink.accept(new EventDTO(Long.toString(++sequenceNo), empId, firstName, lastName, designation,
+                            "BONUS", 500 + random.nextInt(46) * 100, day(month, random),
+                            notes(random, "Performance bonus for " + month.getYear() + ".",
+                                    "Performance bonus for " + monthName + ", " + month.getYear() + ".")));
+                }
+                if (random.nextDouble() < config.getReimbursementRate()) {
+                    final String kind = REIMBURSEMENTS[random.nextInt(REIMBURSEMENTS.length)];
+                    sink.accept(new EventDTO(Long.toString(++sequenceNo), empId, firstName, lastName, designation,
+                            "REIMBURSEMENT", 50 + random.nextInt(96) * 10, day(month, random),
+                            notes(random, kind + " reimbursement.",
+                                    kind + " reimbursement, receipts \"" + monthName + "-" + month.getYear() + "\" attached.")));
+                }
+                if (m == exitMonth[e]) {
+                    sink.accept(new EventDTO(Long.toString(++sequenceNo), empId, firstName, lastName, designation,
+                            "EXIT", 0, day(month, random),
+                            firstName + " " + lastName + " is leaving for personal reasons."));
+                } else {
+                    sink.accept(new EventDTO(Long.toString(++sequenceNo), empId, firstName, lastName, designation,
+                            "SALARY", salary[e], month.atEndOfMonth(),
+                            notes(random, monthName + " Salary of " + firstName + ".",
+                                    monthName + " Salary of " + firstName + ", " + lastName + ".")));
+                }
+            }
+        }
+    }
+
+    private long count() {
+        final long[] count = new long[1];
+        generate(event -> count[0]++);
+        return count[0];
+    }
+
+    private String notes(final Random random, final String plain, final String withCommas) {
+        return random.nextDouble() < config.getQuotedNotesRate() ? withCommas : plain;
+    }
+
+    private static LocalDate day(final YearMonth month, final Random random) {
+        return month.atDay(1 + random.nextInt(month.lengthOfMonth()));
+    }
+
+    private static String csvLine(final EventDTO event, final Random random) {
+        final String notes = event.getNotes();
+        final boolean quote = notes.indexOf(',') >= 0 || notes.indexOf('"') >= 0 || random.nextInt(4) != 0;
+        return event.getSequenceNo() + ',' + event.getEmpId() + ',' + event.getFirstName() + ',' + event.getLastName()
+                + ',' + event.getDesignation() + ',' + event.getEvent() + ',' + (long) event.getValue() + ','
+                + event.getEventDate().format(CSV_DATE) + ','
+                + (quote ? '"' + notes.replace("\"", "\"\"") + '"' : notes);
+    }
+
+    private static String malformed(final EventDTO event, final Random random) {
+        final String[] fields = csvLine(event, random).split(",", 9);
+        switch (random.nextInt(3)) {
+            case 0 -> {
+                return String.join(",", List.of(fields).subList(0, 5));
+            }
+            case 1 -> fields[6] = "n/a";
+            default -> fields[7] = "31-13-" + event.getEventDate().getYear();
+        }
+        return String.join(",", fields);
+    }
+
+    private Path filePath(final Path file, final int fileNo) {
+        if (config.getFiles() <= 1) {
+            return file;
+        }
+        final String name = file.getFileName().toString();
+        final int dot = name.lastIndexOf('.');
+        return file.resolveSibling(dot < 0 ? name + "-" + fileNo : name.substring(0, dot) + "-" + fileNo + name.substring(dot));
+    }
+}
@@ -0,0 +1,20 @@
+package com.payrollsystem.parser;
+
+import com.payrollsystem.dto.EventDTO;
+
+import java.io.IOException;
+
+/**
+ * Receives events as they are parsed from an upload.
+ */
+@FunctionalInterface
+public interface EventSink {
+
+    /**
+     * Accepts a single parsed event.
+     *
+     * @param event the parsed event
+     * @throws IOException if the event cannot be handed on
+     */
+    void accept(EventDTO event) throws IOException;
+}
@@ -0,0 +1,26 @@
+package com.payrollsystem.parser;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live row counters that other threads can poll while a parse is running.
+ * Parsers publish their counts periodically rather than on every row.
+ */
+public class ParseProgress {
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+
+    void add(final long parsed, final long rejected) {
+        rowsParsed.addAndGet(parsed);
+        rowsRejected.addAndGet(rejected);
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.get();
+    }
+}
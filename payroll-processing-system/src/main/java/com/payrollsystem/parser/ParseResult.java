@@ -0,0 +1,14 @@
+package com.payrollsystem.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Row counts from parsing a single upload.
+ */
+@Getter
+@AllArgsConstructor
+public class ParseResult {
+    private final long rowsParsed;
+    private final long rowsRejected;
+}
@@ -0,0 +1,358 @@
+package com.payrollsystem.parser;
+
+import com.payrollsystem.dto.EventDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Streaming parser for payroll upload files in the
+ * {@code SequenceNo,EmpID,EmpFName,EmpLName,Designation,Event,Value,EventDate,Notes} format.
+ * <p>
+ * The parser scans characters straight out of a fixed read buffer into a reusable record
+ * buffer, tracking field boundaries by offset. Values and {@code dd-MM-yyyy} dates are
+ * decoded from the characters in place, and low-cardinality columns are deduplicated
+ * through a small string pool, so the only allocations per row are the strings the
+ * resulting event actually holds. Quoted fields may contain commas, line breaks and
+ * doubled quotes; unquoted commas after the eighth field are kept as part of the notes.
+ * A record may be at most {@value #MAX_RECORD_LENGTH} characters long, so a quote that is
+ * never closed fails the parse instead of buffering the rest of the input as one field.
+ * <p>
+ * Instances keep per-parse state and are not thread safe.
+ */
+public class PayrollCsvParser {
+
+    private static final Logger LOGGER = LogManager.getLogger(PayrollCsvParser.class);
+    private static final int FIELD_COUNT = 9;
+    private static final int NOTES_FIELD = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final int PROGRESS_INTERVAL = 8192;
+    private static final String HEADER_FIELD = "SequenceNo";
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private final StringPool pool = new StringPool(1024);
+    private final ParseProgress progress;
+    private char[] record = new char[512];
+    private int fieldCount;
+    private int currentFieldStart;
+    private int quotedEnd;
+    private long recordNo;
+    private long rowsParsed;
+    private long rowsRejected;
+    private long publishedParsed;
+    private long publishedRejected;
+
+    /**
+     * Creates a parser that does not report progress.
+     */
+    public PayrollCsvParser() {
+        this(null);
+    }
+
+    /**
+     * Creates a parser that periodically publishes its row counts.
+     *
+     * @param progress the counters to publish to, or null
+     */
+    public PayrollCsvParser(final ParseProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Parses every row of the given input and hands each valid event to the sink.
+     * Header rows and blank lines are skipped; incomplete or malformed rows are counted
+     * as rejected.
+     *
+     * @param reader the character input to parse
+     * @param sink   the receiver of parsed events
+     * @return the number of parsed and rejected rows
+     * @throws IOException if the input cannot be read, holds a record longer than
+     *                     {@value #MAX_RECORD_LENGTH} characters or the sink fails
+     */
+    public ParseResult parse(final Reader reader, final EventSink sink) throws IOException {
+        char[] rec = record;
+        int length = 0;
+        boolean started = false;
+        boolean atFieldStart = true;
+        boolean inQuotes = false;
+        boolean quotePending = false;
+        startRecord();
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            for (int i = 0; i < read; i++) {
+                final char c = buffer[i];
+                if (inQuotes) {
+                    if (c == '"') {
+                        inQuotes = false;
+                        quotePending = true;
+                        quotedEnd = length;
+                    } else {
+                        if (length == rec.length) {
+                            rec = grow();
+                        }
+                        rec[length++] = c;
+                    }
+                    continue;
+                }
+                if (quotePending) {
+                    quotePending = false;
+                    if (c == '"') {
+                        if (length == rec.length) {
+                            rec = grow();
+                        }
+                        rec[length++] = c;
+                        inQuotes = true;
+                        continue;
+                    }
+                }
+                if (atFieldStart) {
+                    if (c == ' ' || c == '\t') {
+                        started = true;
+                        continue;
+                    }
+                    atFieldStart = false;
+                    if (c == '"') {
+                        started = true;
+                        inQuotes = true;
+                        continue;
+                    }
+                }
+                if (c == '\n') {
+                    endField(length);
+                    endRecord(sink);
+                    startRecord();
+                    length = 0;
+                    started = false;
+                    atFieldStart = true;
+                } else if (c == ',' && fieldCount < NOTES_FIELD) {
+                    endField(length);
+                    atFieldStart = true;
+                } else {
+                    if (length == rec.length) {
+                        rec = grow();
+                    }
+                    rec[length++] = c;
+                    started = true;
+                }
+            }
+        }
+        if (started || length > 0 || inQuotes || quotePending) {
+            endField(length);
+            endRecord(sink);
+        }
+        publishProgress();
+        return new ParseResult(rowsParsed, rowsRejected);
+    }
+
+    private void startRecord() {
+        fieldCount = 0;
+        currentFieldStart = 0;
+        quotedEnd = 0;
+    }
+
+    private char[] grow() throws IOException {
+        if (record.length >= MAX_RECORD_LENGTH) {
+            throw new IOException("Record " + (recordNo + 1) + " is longer than " + MAX_RECORD_LENGTH
+                    + " characters, it may open a quote that is never closed");
+        }
+        record = Arrays.copyOf(record, Math.min(record.length * 2, MAX_RECORD_LENGTH));
+        return record;
+    }
+
+    private void endField(final int length) {
+        int end = length;
+        final int floor = Math.max(currentFieldStart, quotedEnd);
+        while (end > floor && record[end - 1] <= ' ') {
+            end--;
+        }
+        fieldStart[fieldCount] = currentFieldStart;
+        fieldEnd[fieldCount] = end;
+        fieldCount++;
+        currentFieldStart = length;
+    }
+
+    private void endRecord(final EventSink sink) throws IOException {
+        recordNo++;
+        if (recordNo % PROGRESS_INTERVAL == 0) {
+            publishProgress();
+        }
+        if (fieldCount == 1 && fieldStart[0] == fieldEnd[0]) {
+            return;
+        }
+        if (regionEqualsIgnoreCase(0, HEADER_FIELD)) {
+            return;
+        }
+        if (fieldCount < FIELD_COUNT) {
+            reject("Incomplete data line");
+            return;
+        }
+        final double value;
+        try {
+            value = parseDecimal(fieldStart[6], fieldEnd[6]);
+        } catch (final NumberFormatException e) {
+            reject("Invalid value");
+            return;
+        }
+        final LocalDate eventDate = parseDate(fieldStart[7], fieldEnd[7]);
+        if (eventDate == null) {
+            reject("Invalid event date");
+            return;
+        }
+        sink.accept(new EventDTO(
+                string(0), pooled(1), pooled(2), pooled(3), pooled(4), pooled(5),
+                value, eventDate, string(NOTES_FIELD)));
+        rowsParsed++;
+    }
+
+    private void publishProgress() {
+        if (progress != null) {
+            progress.add(rowsParsed - publishedParsed, rowsRejected - publishedRejected);
+            publishedParsed = rowsParsed;
+            publishedRejected = rowsRejected;
+        }
+    }
+
+    private void reject(final String reason) {
+        rowsRejected++;
+        LOGGER.warn("{} in record {}, skipping it", reason, recordNo);
+    }
+
+    private String string(final int field) {
+        return new String(record, fieldStart[field], fieldEnd[field] - fieldStart[field]);
+    }
+
+    private String pooled(final int field) {
+        return pool.get(record, fieldStart[field], fieldEnd[field]);
+    }
+
+    private boolean regionEqualsIgnoreCase(final int field, final String expected) {
+        final int start = fieldStart[field];
+        if (fieldEnd[field] - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toLowerCase(record[start + i]) != Character.toLowerCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a plain decimal without building a String. Inputs outside the fast path
+     * (exponents, more than fifteen significant digits) fall back to {@link Double#parseDouble}.
+     */
+    private double parseDecimal(final int start, final int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (record[i] == '-' || record[i] == '+')) {
+            negative = record[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            final char c = record[i];
+            if (c >= '0' && c <= '9') {
+                if (digits == MAX_FAST_DIGITS) {
+                    return Double.parseDouble(new String(record, start, end - start));
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return Double.parseDouble(new String(record, start, end - start));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("No digits in value");
+        }
+        final double value = fractionDigits > 0 ? mantissa / POW10[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodes a {@code dd-MM-yyyy} date. As with the lenient {@code DateTimeFormatter} default,
+     * a day past the end of the month is clamped to the last day.
+     *
+     * @return the date, or null if the field is not a valid date
+     */
+    private LocalDate parseDate(final int start, final int end) {
+        if (end - start != 10 || record[start + 2] != '-' || record[start + 5] != '-') {
+            return null;
+        }
+        final int day = digits(start, 2);
+        final int month = digits(start + 3, 2);
+        final int year = digits(start + 6, 4);
+        if (day < 1 || day > 31 || month < 0 || year < 0) {
+            return null;
+        }
+        try {
+            final LocalDate firstOfMonth = LocalDate.of(year, month, 1);
+            return firstOfMonth.withDayOfMonth(Math.min(day, firstOfMonth.lengthOfMonth()));
+        } catch (final DateTimeException e) {
+            return null;
+        }
+    }
+
+    private int digits(final int start, final int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            final char c = record[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Direct-mapped cache returning the same String instance for repeated character runs.
+     */
+    private static final class StringPool {
+        private final String[] slots;
+
+        StringPool(final int size) {
+            slots = new String[size];
+        }
+
+        String get(final char[] chars, final int start, final int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            final int slot = (hash ^ (hash >>> 16)) & (slots.length - 1);
+            final String cached = slots[slot];
+            if (cached != null && cached.length() == end - start) {
+                boolean same = true;
+                for (int i = 0; i < cached.length() && same; i++) {
+                    same = cached.charAt(i) == chars[start + i];
+                }
+                if (same) {
+                    return cached;
+                }
+            }
+            final String value = new String(chars, start, end - start);
+            slots[slot] = value;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.payrollsystem.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Status and progress of an asynchronous upload job.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@NoArgsConstructor
+public class IngestionJobResponse extends BaseResponse {
+
+    private String jobId;
+    private String status;
+    private long rowsParsed;
+    private long rowsRejected;
+    private double rowsPerSecond;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private PayrollProcessingResponse result;
+
+    public IngestionJobResponse(final boolean success) {
+        super(success);
+    }
+}
@@ -7,6 +7,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,7 +23,10 @@ public class PayrollProcessingResponse extends BaseResponse {
     //    private String errorDescription;
     private List<EventDTO> events;
     private List<String> errorDescriptions;
-
+    /**
+     * Records skipped because their SequenceNo was already ingested.
+     */
+    private Long duplicates;
 
     public PayrollProcessingResponse(final BaseResponse br) {
         super(br);
@@ -41,4 +45,40 @@ public class PayrollProcessingResponse extends BaseResponse {
         super(success);
         this.errorDescriptions = errorDescriptions;
     }
+
+    /**
+     * Combines the responses for the files of one upload: successful only if every file
+     * succeeded, with the duplicates of all files summed, otherwise carrying the error
+     * descriptions of the failed files.
+     *
+     * @param responses the per-file responses
+     * @return the combined response
+     */
+    public static PayrollProcessingResponse combine(final List<PayrollProcessingResponse> responses) {
+        final List<EventDTO> allEvents = new ArrayList<>();
+        final List<String> errorDescriptions = new ArrayList<>();
+        boolean allSuccess = true;
+        Long duplicates = null;
+        for (final PayrollProcessingResponse res : responses) {
+            if (res.isSuccess()) {
+                if (res.getEvents() != null) {
+                    allEvents.addAll(res.getEvents());
+                }
+                if (res.getDuplicates() != null) {
+                    duplicates = (duplicates == null ? 0 : duplicates) + res.getDuplicates();
+                }
+            } else {
+                allSuccess = false;
+                if (res.getErrorDescriptions() != null) {
+                    errorDescriptions.addAll(res.getErrorDescriptions());
+                }
+            }
+        }
+        if (!allSuccess) {
+            return new PayrollProcessingResponse(false, errorDescriptions, true);
+        }
+        final PayrollProcessingResponse combined = new PayrollProcessingResponse(true, allEvents);
+        combined.setDuplicates(duplicates);
+        return combined;
+    }
 }
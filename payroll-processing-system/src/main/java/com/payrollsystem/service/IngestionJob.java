@@ -0,0 +1,96 @@
+package com.payrollsystem.service;
+
+import com.payrollsystem.parser.ParseProgress;
+import com.payrollsystem.response.IngestionJobResponse;
+import com.payrollsystem.response.PayrollProcessingResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An upload queued for background ingestion, together with its live progress.
+ */
+public class IngestionJob {
+
+    /**
+     * Lifecycle of an ingestion job.
+     */
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private volatile ParseProgress progress = new ParseProgress();
+    private final Instant submittedAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile PayrollProcessingResponse result;
+    private volatile int attempts;
+
+    public String getId() {
+        return id;
+    }
+
+    public ParseProgress getProgress() {
+        return progress;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+        attempts++;
+    }
+
+    /**
+     * Puts the job back in the queue after an attempt that found no room, starting its
+     * counters over for the next attempt.
+     */
+    void requeue() {
+        progress = new ParseProgress();
+        status = Status.QUEUED;
+    }
+
+    void finish(final PayrollProcessingResponse result, final Status status) {
+        this.result = result;
+        finishedAt = Instant.now();
+        this.status = status;
+    }
+
+    /**
+     * Takes a snapshot of the job for reporting.
+     *
+     * @return the job status, counters and, once finished, the processing result
+     */
+    public IngestionJobResponse toResponse() {
+        final ParseProgress progress = this.progress;
+        final IngestionJobResponse response = new IngestionJobResponse(status != Status.FAILED);
+        response.setJobId(id);
+        response.setStatus(status.name());
+        response.setRowsParsed(progress.getRowsParsed());
+        response.setRowsRejected(progress.getRowsRejected());
+        response.setSubmittedAt(submittedAt);
+        response.setStartedAt(startedAt);
+        response.setFinishedAt(finishedAt);
+        response.setResult(result);
+        if (startedAt != null) {
+            final Instant end = finishedAt != null ? finishedAt : Instant.now();
+            final long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+            response.setRowsPerSecond(progress.getRowsParsed() * 1000.0 / millis);
+        }
+        return response;
+    }
+}
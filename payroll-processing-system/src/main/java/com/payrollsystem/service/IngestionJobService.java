@@ -0,0 +1,198 @@
+package com.payrollsystem.service;
+
+import com.payrollsystem.exception.CustomException;
+import com.payrollsystem.exception.IngestionRejectedException;
+import com.payrollsystem.response.PayrollProcessingResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.payrollsystem.exception.CustomExceptionEnum.INGESTION_BUSY;
+import static com.payrollsystem.exception.CustomExceptionEnum.INTERNAL_EXCEPTION;
+import static com.payrollsystem.exception.CustomExceptionEnum.JOB_QUEUE_FULL;
+
+/**
+ * Runs uploads in the background so the HTTP request returns as soon as the files are
+ * spooled to disk. Jobs run on a bounded worker pool with a bounded queue; when the queue
+ * is full new jobs are refused rather than piling up. Finished jobs are kept for polling
+ * until the configured number of retained jobs is exceeded.
+ * <p>
+ * A job that finds the {@link IngestionLimiter} busy is not failed: nobody is waiting on its
+ * response to retry it, so it goes back to {@code QUEUED} and is handed back to the worker
+ * pool after the limiter's retry delay, running again from its spooled files, up to
+ * {@code payroll.jobs.max-attempts} times. The worker is not held while the job waits.
+ */
+@Service
+public class IngestionJobService {
+
+    private static final Logger LOGGER = LogManager.getLogger(IngestionJobService.class);
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    private PayrollService payrollService;
+
+    @Autowired
+    private ExecutorService ingestionJobExecutor;
+
+    @Autowired
+    private ScheduledExecutorService ingestionRetryScheduler;
+
+    @Autowired
+    private IngestionLimiter ingestionLimiter;
+
+    @Value("${payroll.jobs.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${payroll.jobs.retained:100}")
+    private int retainedJobs;
+
+    /**
+     * Spools the uploaded files to temporary files and queues them for ingestion.
+     *
+     * @param files the uploaded files
+     * @return the queued job
+     * @throws IOException     if the files cannot be spooled
+     * @throws CustomException if the job queue is full
+     */
+    public IngestionJob submit(final List<MultipartFile> files) throws IOException, CustomException {
+        final List<Path> spooled = new ArrayList<>(files.size());
+        try {
+            for (final MultipartFile file : files) {
+                final Path temp = Files.createTempFile("payroll-upload-", ".csv");
+                spooled.add(temp);
+                file.transferTo(temp);
+            }
+        } catch (final IOException e) {
+            deleteAll(spooled);
+            throw e;
+        }
+        final IngestionJob job = new IngestionJob();
+        jobs.put(job.getId(), job);
+        try {
+            ingestionJobExecutor.execute(() -> run(job, spooled));
+        } catch (final RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            deleteAll(spooled);
+            throw new CustomException(JOB_QUEUE_FULL.getExceptionDescription(), JOB_QUEUE_FULL.getExceptionCode());
+        }
+        evictFinishedJobs();
+        LOGGER.info("Queued upload job {} with {} file(s)", job.getId(), files.size());
+        return job;
+    }
+
+    /**
+     * Looks up a job by id.
+     *
+     * @param jobId the job id
+     * @return the job, if it is still retained
+     */
+    public Optional<IngestionJob> getJob(final String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(final IngestionJob job, final List<Path> files) {
+        boolean retrying = false;
+        try {
+            job.start();
+            final List<FileSystemResource> sources = files.stream().map(FileSystemResource::new).toList();
+            final PayrollProcessingResponse result;
+            try {
+                result = PayrollProcessingResponse.combine(payrollService.processSources(sources, job.getProgress()));
+            } catch (final IngestionRejectedException e) {
+                if (e.getReason() != INGESTION_BUSY || job.getAttempts() >= maxAttempts) {
+                    throw e;
+                }
+                retrying = scheduleRetry(job, files);
+                return;
+            }
+            job.finish(result, result.isSuccess() ? IngestionJob.Status.COMPLETED : IngestionJob.Status.FAILED);
+            LOGGER.info("Upload job {} finished, Success: {}", job.getId(), result.isSuccess());
+        } catch (final IngestionRejectedException e) {
+            LOGGER.warn("Upload job {} rejected: {}", job.getId(), e.getMessage());
+            job.finish(new PayrollProcessingResponse(false, List.of(e.getMessage()), true), IngestionJob.Status.FAILED);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error("Upload job {} failed", job.getId(), e);
+            job.finish(new PayrollProcessingResponse(false,
+                    List.of(INTERNAL_EXCEPTION.getExceptionDescription()), true), IngestionJob.Status.FAILED);
+        } finally {
+            if (!retrying) {
+                deleteAll(files);
+            }
+        }
+    }
+
+    /**
+     * Puts a job that found ingestion busy back to {@code QUEUED} and hands it back to the job
+     * pool once the limiter's retry delay has passed, so the worker is free in the meantime.
+     *
+     * @return whether the retry was scheduled; if not, the job has been failed
+     */
+    private boolean scheduleRetry(final IngestionJob job, final List<Path> files) {
+        final long delay = ingestionLimiter.getRetryAfterSeconds();
+        LOGGER.info("Upload job {} found ingestion busy, retrying in {} s", job.getId(), delay);
+        job.requeue();
+        try {
+            ingestionRetryScheduler.schedule(() -> resubmit(job, files), delay, TimeUnit.SECONDS);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            failRetry(job);
+            return false;
+        }
+    }
+
+    private void resubmit(final IngestionJob job, final List<Path> files) {
+        try {
+            ingestionJobExecutor.execute(() -> run(job, files));
+        } catch (final RejectedExecutionException e) {
+            failRetry(job);
+            deleteAll(files);
+        }
+    }
+
+    private void failRetry(final IngestionJob job) {
+        LOGGER.warn("Upload job {} could not be queued for retry", job.getId());
+        job.finish(new PayrollProcessingResponse(false, List.of(JOB_QUEUE_FULL.getExceptionDescription()), true),
+                IngestionJob.Status.FAILED);
+    }
+
+    private void evictFinishedJobs() {
+        final int excess = jobs.size() - retainedJobs;
+        if (excess <= 0) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> job.getFinishedAt() != null)
+                .sorted(Comparator.comparing(IngestionJob::getFinishedAt))
+                .limit(excess)
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+
+    private static void deleteAll(final List<Path> files) {
+        for (final Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                LOGGER.warn("Could not delete spooled upload {}", file, e);
+            }
+        }
+    }
+}
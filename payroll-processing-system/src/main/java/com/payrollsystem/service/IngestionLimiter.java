@@ -0,0 +1,163 @@
+package com.payrollsystem.service;
+
+import com.payrollsystem.exception.IngestionRejectedException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.payrollsystem.exception.CustomExceptionEnum.INGESTION_BUSY;
+import static com.payrollsystem.exception.CustomExceptionEnum.UPLOAD_TOO_LARGE;
+
+/**
+ * Bounds the memory held by uploads in flight: at most {@code payroll.ingest.max-in-flight}
+ * uploads are parsed at once, and together they may buffer at most
+ * {@code payroll.ingest.max-buffered-rows} parsed rows until their commit. An upload that
+ * cannot get a slot, or room for more rows, within {@code payroll.ingest.acquire-timeout-ms}
+ * is rejected so the caller can retry later, instead of piling up on the heap.
+ */
+@Component
+public class IngestionLimiter {
+
+    @Value("${payroll.ingest.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${payroll.ingest.max-buffered-rows:2000000}")
+    private int maxBufferedRows;
+
+    @Value("${payroll.ingest.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    @Value("${payroll.ingest.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    private Semaphore uploads;
+    private Semaphore bufferedRows;
+
+    @PostConstruct
+    void init() {
+        uploads = new Semaphore(maxInFlight, true);
+        bufferedRows = new Semaphore(maxBufferedRows, true);
+    }
+
+    /**
+     * Takes one of the upload slots, waiting up to the acquire timeout.
+     *
+     * @return the permit, to be closed once the upload is committed
+     * @throws IngestionRejectedException if no slot frees up in time
+     * @throws InterruptedIOException     if interrupted while waiting
+     */
+    public Permit acquire() throws IOException {
+        if (!tryAcquire(uploads, 1)) {
+            throw new IngestionRejectedException(INGESTION_BUSY);
+        }
+        return new Permit();
+    }
+
+    /**
+     * Tells clients how long to wait before retrying a rejected upload.
+     *
+     * @return the suggested delay in seconds
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getAvailableUploads() {
+        return uploads.availablePermits();
+    }
+
+    public int getAvailableRows() {
+        return bufferedRows.availablePermits();
+    }
+
+    private boolean tryAcquire(final Semaphore semaphore, final int permits) throws InterruptedIOException {
+        try {
+            return semaphore.tryAcquire(permits, acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for ingestion capacity");
+        }
+    }
+
+    /**
+     * An upload slot plus the rows it has reserved. Thread safe, so the files of one upload
+     * can reserve rows while they are parsed in parallel.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private int reservedRows;
+        private boolean closed;
+
+        private Permit() {
+        }
+
+        /**
+         * Reserves room for more buffered rows, waiting up to the acquire timeout.
+         *
+         * @param rows the number of rows about to be buffered
+         * @throws IngestionRejectedException if the upload alone exceeds the row cap, or no room frees up in time
+         * @throws InterruptedIOException     if interrupted while waiting, or the permit is already closed
+         */
+        public void reserveRows(final int rows) throws IOException {
+            synchronized (this) {
+                checkOpen();
+                if (reservedRows + rows > maxBufferedRows) {
+                    throw new IngestionRejectedException(UPLOAD_TOO_LARGE);
+                }
+            }
+            if (!tryAcquire(bufferedRows, rows)) {
+                throw new IngestionRejectedException(INGESTION_BUSY);
+            }
+            synchronized (this) {
+                if (closed) {
+                    bufferedRows.release(rows);
+                }
+                checkOpen();
+                reservedRows += rows;
+            }
+        }
+
+        /**
+         * Gives back reserved rows that were not buffered after all, such as the unused end
+         * of a reservation or the rows of a file that failed to parse.
+         *
+         * @param rows the number of rows to give back, at most the number reserved
+         */
+        public synchronized void releaseRows(final int rows) {
+            if (closed || rows <= 0) {
+                return;
+            }
+            bufferedRows.release(rows);
+            reservedRows -= rows;
+        }
+
+        /**
+         * Stops files still being parsed for an upload that was abandoned, so no rows are
+         * reserved for it once its permit is closed.
+         */
+        private void checkOpen() throws InterruptedIOException {
+            if (closed) {
+                throw new InterruptedIOException("The upload was abandoned while its rows were being reserved");
+            }
+        }
+
+        /**
+         * Releases the reserved rows and the upload slot.
+         */
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            bufferedRows.release(reservedRows);
+            reservedRows = 0;
+            uploads.release();
+        }
+    }
+}
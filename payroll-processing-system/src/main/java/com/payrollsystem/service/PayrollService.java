@@ -1,10 +1,16 @@
 package com.payrollsystem.service;
 
 import com.payrollsystem.dto.*;
+import com.payrollsystem.exception.IngestionRejectedException;
+import com.payrollsystem.parser.ParseProgress;
 import com.payrollsystem.response.PayrollProcessingResponse;
+import com.payrollsystem.store.AggregationQuery;
+import com.payrollsystem.store.PeriodRange;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -18,8 +24,51 @@ public interface PayrollService {
      *
      * @param file the multipart file to be processed
      * @return a response indicating the success or failure of the operation
+     * @throws IngestionRejectedException if the ingestion limits leave no room for the upload
+     * @throws IOException                if interrupted while waiting for room
      */
-    PayrollProcessingResponse processFile(MultipartFile file);
+    PayrollProcessingResponse processFile(MultipartFile file) throws IOException;
+
+    /**
+     * Processes several uploaded payroll files, parsing them in parallel and recording the
+     * events of every successfully parsed file in a single commit.
+     *
+     * @param files the multipart files to be processed
+     * @return one response per file, in the order of the given files
+     * @throws IngestionRejectedException if the ingestion limits leave no room for the upload
+     * @throws IOException                if interrupted while waiting for room
+     */
+    List<PayrollProcessingResponse> processFiles(List<MultipartFile> files) throws IOException;
+
+    /**
+     * Processes payroll uploads from any readable source, parsing them in parallel, recording the
+     * events of every successfully parsed source in a single commit and publishing row counts
+     * while parsing. Uploads are admitted through the {@link IngestionLimiter}; a rejected
+     * upload commits nothing.
+     *
+     * @param sources  the upload contents to be processed
+     * @param progress the counters updated as rows are parsed
+     * @return one response per source, in the order of the given sources
+     * @throws IngestionRejectedException if the ingestion limits leave no room for the upload
+     * @throws IOException                if interrupted while waiting for room or for the parsers, in which
+     *                                    case nothing is committed
+     */
+    List<PayrollProcessingResponse> processSources(List<? extends InputStreamSource> sources, ParseProgress progress)
+            throws IOException;
+
+    /**
+     * Processes a single upload as it is read, committing its events in chunks of
+     * {@code payroll.ingest.stream-chunk-rows} so memory use stays the same whatever the
+     * upload size. Gzip-compressed input is decompressed on the fly. Chunks committed before
+     * a failure stay committed; since ingestion is idempotent on {@code SequenceNo}, the
+     * whole upload can simply be sent again.
+     *
+     * @param input the upload contents
+     * @return a response carrying the number of duplicate rows skipped
+     * @throws IngestionRejectedException if the ingestion limits leave no room for the upload
+     * @throws IOException                if the upload cannot be read or a chunk cannot be committed
+     */
+    PayrollProcessingResponse processStream(InputStream input) throws IOException;
 
     /**
      * Generates a monthly salary report summarizing salaries by month.
@@ -29,6 +78,15 @@ public interface PayrollService {
      */
     List<MonthlyReportDTO> generateMonthlySalaryReport() throws IOException;
 
+    /**
+     * Generates a monthly salary report for the months in range, one entry per year-month.
+     *
+     * @param range the months to report on
+     * @return a list of monthly report data transfer objects keyed by {@code yyyy-MM}
+     * @throws IOException if there's an error reading from the file
+     */
+    List<MonthlyReportDTO> generateMonthlySalaryReport(PeriodRange range) throws IOException;
+
     /**
      * Generates a yearly financial report detailing financial events by employee and date.
      *
@@ -37,6 +95,42 @@ public interface PayrollService {
      */
     List<YearlyFinancialReportDTO> generateYearlyFinancialReport() throws IOException;
 
+    /**
+     * Generates the financial report for the events dated in range, oldest month first.
+     *
+     * @param range the months to report on
+     * @return a list of yearly financial report data transfer objects
+     * @throws IOException if there's an error reading from the file
+     */
+    List<YearlyFinancialReportDTO> generateYearlyFinancialReport(PeriodRange range) throws IOException;
+
+    /**
+     * Generates one page of the yearly financial report. Cursors are opaque and name the entry
+     * the next page starts at rather than counting the ones before it. Events are only ever
+     * appended and each month's events stay in order, so a cursor stays valid across uploads
+     * made while paging: entries they add to months already paged past are not shown, and
+     * entries already returned are never repeated.
+     *
+     * @param range  the months to report on
+     * @param cursor the position to start from, 0 for the first page
+     * @param limit  the maximum number of entries in the page
+     * @return the page, with the cursor of the next page or null if this is the last one
+     * @throws IOException if there's an error reading from the file
+     */
+    YearlyFinancialReportPageDTO generateYearlyFinancialReport(PeriodRange range, long cursor, int limit) throws IOException;
+
+    /**
+     * Streams the yearly financial report entry by entry, in the order of the unpaged report.
+     * The whole report is read from the events of a single commit, each of them once, and
+     * no more of it is held than the entry being written.
+     *
+     * @param range  the months to report on
+     * @param writer receives each entry
+     * @throws IOException if there's an error reading the events or writing an entry
+     */
+    void streamYearlyFinancialReport(PeriodRange range, EntryWriter<YearlyFinancialReportDTO> writer)
+            throws IOException;
+
     /**
      * Retrieves the total number of unique employees based on employee IDs.
      *
@@ -45,6 +139,15 @@ public interface PayrollService {
      */
     Integer getTotalEmployees() throws IOException;
 
+    /**
+     * Retrieves the number of unique employees with at least one event in range.
+     *
+     * @param range the months to report on
+     * @return the count of unique employees
+     * @throws IOException if there's an error reading from the file
+     */
+    Integer getTotalEmployees(PeriodRange range) throws IOException;
+
     /**
      * Retrieves events for employees filtered by a specific event type and grouped by month.
      *
@@ -54,6 +157,16 @@ public interface PayrollService {
      */
     Map<String, List<EventDTO>> getEmployeeEventsByMonth(String event) throws IOException;
 
+    /**
+     * Retrieves events of a specific type dated in range, grouped by year-month.
+     *
+     * @param event the type of event to filter by
+     * @param range the months to report on
+     * @return a map of {@code yyyy-MM} strings to lists of event data transfer objects
+     * @throws IOException if there's an error reading from the file
+     */
+    Map<String, List<EventDTO>> getEmployeeEventsByMonth(String event, PeriodRange range) throws IOException;
+
     /**
      * Generates a comprehensive financial report for each employee.
      *
@@ -62,6 +175,16 @@ public interface PayrollService {
      */
     List<EmployeeFinancialReportDTO> getEmployeeFinancialReport() throws IOException;
 
+    /**
+     * Generates the financial report of each employee with events in range, counting only
+     * the amounts paid in range.
+     *
+     * @param range the months to report on
+     * @return a list of employee financial report data transfer objects
+     * @throws IOException if there's an error reading from the file
+     */
+    List<EmployeeFinancialReportDTO> getEmployeeFinancialReport(PeriodRange range) throws IOException;
+
     /**
      * Summarizes monthly amounts for payroll-related events.
      *
@@ -69,4 +192,44 @@ public interface PayrollService {
      * @throws IOException if there's an error reading from the file
      */
     List<MonthlyAmountReportDTO> getMonthlyAmountReport() throws IOException;
-}
\ No newline at end of file
+
+    /**
+     * Summarizes the amounts paid in range, one entry per year-month.
+     *
+     * @param range the months to report on
+     * @return a list of monthly amount report data transfer objects keyed by {@code yyyy-MM}
+     * @throws IOException if there's an error reading from the file
+     */
+    List<MonthlyAmountReportDTO> getMonthlyAmountReport(PeriodRange range) throws IOException;
+
+    /**
+     * Builds every summary the dashboard shows, the monthly salaries and amounts, employee
+     * financials, employee count and monthly joins and exits, from a single read of the data.
+     * All of them reflect the same commit, so they always agree with each other. Each summary
+     * matches what its own report method returns for the range.
+     *
+     * @param range the months to report on, or {@link PeriodRange#ALL}
+     * @return the dashboard summaries
+     * @throws IOException if there's an error reading from the file
+     */
+    DashboardDTO getDashboard(PeriodRange range) throws IOException;
+
+    /**
+     * Runs an ad-hoc aggregation query over all events.
+     *
+     * @param query the filters, group-by dimensions and aggregate function
+     * @return one row per group
+     * @throws IOException if there's an error reading from the file
+     */
+    List<AggregationRowDTO> aggregate(AggregationQuery query) throws IOException;
+
+    /**
+     * Receives the entries of a streamed report.
+     *
+     * @param <T> the entry type
+     */
+    @FunctionalInterface
+    interface EntryWriter<T> {
+        void write(T entry) throws IOException;
+    }
+}
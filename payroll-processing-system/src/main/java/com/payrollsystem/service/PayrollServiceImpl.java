@@ -1,27 +1,50 @@
 package com.payrollsystem.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payrollsystem.actuator.PayrollMetrics;
 import com.payrollsystem.dto.*;
 import com.payrollsystem.exception.CustomExceptionEnum;
+import com.payrollsystem.exception.IngestionRejectedException;
+import com.payrollsystem.parser.ParseProgress;
+import com.payrollsystem.parser.ParseResult;
+import com.payrollsystem.parser.PayrollCsvParser;
 import com.payrollsystem.response.PayrollProcessingResponse;
-import com.payrollsystem.util.ObjectMapperUtil;
+import com.payrollsystem.store.AggregationQuery;
+import com.payrollsystem.store.CommitResult;
+import com.payrollsystem.store.EventIndex;
+import com.payrollsystem.store.EventStore;
+import com.payrollsystem.store.EventTable;
+import com.payrollsystem.store.IntList;
+import com.payrollsystem.store.PeriodRange;
+import com.payrollsystem.store.ReportAggregates;
+import com.payrollsystem.util.CompressionUtil;
+import com.payrollsystem.util.MoneyUtil;
+import io.micrometer.core.annotation.Timed;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,196 +52,531 @@ public class PayrollServiceImpl implements PayrollService {
 
     private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MM");
     private static final Logger LOGGER = LogManager.getLogger(PayrollServiceImpl.class);
-    private static final Path DATA_FILE_PATH = Paths.get("data", "EmployeeData.json");
+    private static final int ROWS_PER_RESERVATION = 4096;
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Autowired
+    private ExecutorService uploadParserExecutor;
+
+    @Autowired
+    private PayrollMetrics payrollMetrics;
+
+    @Autowired
+    private IngestionLimiter ingestionLimiter;
+
+    @Value("${payroll.ingest.stream-chunk-rows:50000}")
+    private int streamChunkRows;
 
     @Override
-    public PayrollProcessingResponse processFile(final MultipartFile file) {
-        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-            final List<EventDTO> records = new ArrayList<>();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                final EventDTO eventDTO = parseLineToEvent(line);
-                if (eventDTO != null) {
-                    records.add(eventDTO);
-                    LOGGER.debug("Parsed EventDTO: {}", eventDTO);
+    public PayrollProcessingResponse processFile(final MultipartFile file) throws IOException {
+        return processFiles(List.of(file)).get(0);
+    }
+
+    @Override
+    public List<PayrollProcessingResponse> processFiles(final List<MultipartFile> files) throws IOException {
+        return processSources(files, new ParseProgress());
+    }
+
+    @Override
+    public List<PayrollProcessingResponse> processSources(final List<? extends InputStreamSource> sources,
+                                                          final ParseProgress progress) throws IOException {
+        try (final IngestionLimiter.Permit permit = ingestionLimiter.acquire()) {
+            return processSources(sources, progress, permit);
+        } catch (final IngestionRejectedException e) {
+            payrollMetrics.recordRejectedUpload(e.getReason());
+            throw e;
+        }
+    }
+
+    private List<PayrollProcessingResponse> processSources(final List<? extends InputStreamSource> sources,
+                                                           final ParseProgress progress,
+                                                           final IngestionLimiter.Permit permit) throws IOException {
+        final List<Future<List<EventDTO>>> parsed = new ArrayList<>(sources.size());
+        for (final InputStreamSource source : sources) {
+            parsed.add(uploadParserExecutor.submit(() -> parseFile(source, progress, permit)));
+        }
+        IngestionRejectedException rejected = null;
+        final List<EventDTO> batch = new ArrayList<>();
+        final List<PayrollProcessingResponse> responses = new ArrayList<>(sources.size());
+        final int[] batchStart = new int[sources.size()];
+        final int[] batchEnd = new int[sources.size()];
+        for (final Future<List<EventDTO>> future : parsed) {
+            if (rejected != null) {
+                break;
+            }
+            try {
+                final List<EventDTO> records = future.get();
+                batchStart[responses.size()] = batch.size();
+                batch.addAll(records);
+                batchEnd[responses.size()] = batch.size();
+                responses.add(new PayrollProcessingResponse(true));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                parsed.forEach(sibling -> sibling.cancel(true));
+                throw new InterruptedIOException("Interrupted while processing an upload of " + sources.size()
+                        + " file(s); nothing was committed");
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof IngestionRejectedException cause) {
+                    rejected = cause;
+                    parsed.forEach(sibling -> sibling.cancel(true));
+                } else {
+                    LOGGER.error("Error processing file", e);
                 }
+                responses.add(new PayrollProcessingResponse(CustomExceptionEnum.INTERNAL_EXCEPTION.getResponse()));
+            } catch (final CancellationException e) {
+                responses.add(new PayrollProcessingResponse(CustomExceptionEnum.INTERNAL_EXCEPTION.getResponse()));
+            } catch (final Exception e) {
+                LOGGER.error("Error processing file", e);
+                responses.add(new PayrollProcessingResponse(CustomExceptionEnum.INTERNAL_EXCEPTION.getResponse()));
+            }
+        }
+        if (rejected != null) {
+            LOGGER.warn("Rejected an upload of {} file(s): {}", sources.size(), rejected.getMessage());
+            throw rejected;
+        }
+        try {
+            final long start = System.nanoTime();
+            final CommitResult result = eventStore.append(batch);
+            payrollMetrics.recordCommit(result, System.nanoTime() - start);
+            for (int i = 0; i < responses.size(); i++) {
+                if (responses.get(i).isSuccess()) {
+                    responses.get(i).setDuplicates((long) result.countDuplicates(batchStart[i], batchEnd[i]));
+                }
+            }
+            if (result.getDuplicateCount() > 0) {
+                LOGGER.info("Skipped {} already ingested records", result.getDuplicateCount());
             }
-            LOGGER.debug("Total records to write from this file: {}", records.size());
-            writeRecordsToFile(records);
-            return new PayrollProcessingResponse(true);
         } catch (final Exception e) {
-            LOGGER.error("Error processing file", e);
-            return new PayrollProcessingResponse(CustomExceptionEnum.INTERNAL_EXCEPTION.getResponse());
+            LOGGER.error("Error committing {} records", batch.size(), e);
+            responses.replaceAll(response -> response.isSuccess()
+                    ? new PayrollProcessingResponse(CustomExceptionEnum.INTERNAL_EXCEPTION.getResponse())
+                    : response);
         }
+        return responses;
     }
 
     @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "monthly-salary"}, histogram = true)
     public List<MonthlyReportDTO> generateMonthlySalaryReport() throws IOException {
-        final List<EventDTO> records = readRecordsFromFile();
-        return records.stream()
-                .filter(r -> "SALARY".equals(r.getEvent()))
-                .collect(Collectors.groupingBy(
-                        r -> (r.getEventDate()).getMonth().toString(),
-                        Collectors.summarizingDouble(EventDTO::getValue)
-                ))
-                .entrySet().stream()
-                .map(e -> new MonthlyReportDTO(e.getKey(), e.getValue().getSum(), (int) e.getValue().getCount()))
-                .collect(Collectors.toList());
+        return eventStore.readAggregates(aggregates -> monthlySalaryReport(aggregates, PeriodRange.ALL));
     }
 
     @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "monthly-salary"}, histogram = true)
+    public List<MonthlyReportDTO> generateMonthlySalaryReport(final PeriodRange range) throws IOException {
+        return eventStore.readAggregates(aggregates -> monthlySalaryReport(aggregates, range));
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "yearly-financial"}, histogram = true)
     public List<YearlyFinancialReportDTO> generateYearlyFinancialReport() throws IOException {
-        final List<EventDTO> records = readRecordsFromFile();
-        return records.stream()
-                .map(r -> new YearlyFinancialReportDTO(r.getEvent(), r.getEmpId(),
-                        Date.from(r.getEventDate().atStartOfDay(ZoneId.systemDefault()).toInstant()),
-                        r.getValue()))
-                .collect(Collectors.toList());
+        return eventStore.read(table -> {
+            final List<YearlyFinancialReportDTO> reports = new ArrayList<>(table.size());
+            for (int row = 0; row < table.size(); row++) {
+                reports.add(toYearlyFinancialReport(table, row));
+            }
+            return reports;
+        });
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "yearly-financial"}, histogram = true)
+    public List<YearlyFinancialReportDTO> generateYearlyFinancialReport(final PeriodRange range) throws IOException {
+        return eventStore.readIndexed((table, index) -> {
+            final List<YearlyFinancialReportDTO> reports = new ArrayList<>();
+            for (final IntList rows : index.rowsInRange(range)) {
+                for (int i = 0; i < rows.size(); i++) {
+                    reports.add(toYearlyFinancialReport(table, rows.get(i)));
+                }
+            }
+            return reports;
+        });
     }
 
     @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "yearly-financial-page"}, histogram = true)
+    public YearlyFinancialReportPageDTO generateYearlyFinancialReport(final PeriodRange range, final long cursor,
+                                                                      final int limit) throws IOException {
+        if (range.isAll()) {
+            return eventStore.read(table -> {
+                final int from = (int) Math.min(Math.max(cursor, 0), table.size());
+                final int to = (int) Math.min((long) from + limit, table.size());
+                final List<YearlyFinancialReportDTO> reports = new ArrayList<>(to - from);
+                for (int row = from; row < to; row++) {
+                    reports.add(toYearlyFinancialReport(table, row));
+                }
+                return new YearlyFinancialReportPageDTO(reports, to < table.size() ? Long.valueOf(to) : null);
+            });
+        }
+        final YearMonth startMonth = YearMonth.of(0, 1).plusMonths(Math.max(cursor, 0) >>> 32);
+        final int startRow = (int) (Math.max(cursor, 0) & 0xFFFFFFFFL);
+        return eventStore.readIndexed((table, index) -> {
+            final List<YearlyFinancialReportDTO> reports = new ArrayList<>();
+            for (final Map.Entry<YearMonth, IntList> month : index.monthsInRange(range)
+                    .tailMap(startMonth, true).entrySet()) {
+                final IntList rows = month.getValue();
+                int i = month.getKey().equals(startMonth) ? firstRowFrom(rows, startRow) : 0;
+                for (; i < rows.size(); i++) {
+                    if (reports.size() == limit) {
+                        return new YearlyFinancialReportPageDTO(reports, rangeCursor(month.getKey(), rows.get(i)));
+                    }
+                    reports.add(toYearlyFinancialReport(table, rows.get(i)));
+                }
+            }
+            return new YearlyFinancialReportPageDTO(reports, null);
+        });
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "yearly-financial-stream"}, histogram = true)
+    public void streamYearlyFinancialReport(final PeriodRange range,
+                                            final EntryWriter<YearlyFinancialReportDTO> writer) throws IOException {
+        eventStore.readIndexed((table, index) -> {
+            try {
+                if (range.isAll()) {
+                    for (int row = 0; row < table.size(); row++) {
+                        writer.write(toYearlyFinancialReport(table, row));
+                    }
+                    return null;
+                }
+                for (final IntList rows : index.rowsInRange(range)) {
+                    for (int i = 0; i < rows.size(); i++) {
+                        writer.write(toYearlyFinancialReport(table, rows.get(i)));
+                    }
+                }
+                return null;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "total-employees"}, histogram = true)
     public Integer getTotalEmployees() throws IOException {
-        return new HashSet<>(readRecordsFromFile().stream().map(EventDTO::getEmpId).collect(Collectors.toList())).size();
+        return eventStore.readAggregates(aggregates -> aggregates.getEmployees().size());
     }
 
     @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "total-employees"}, histogram = true)
+    public Integer getTotalEmployees(final PeriodRange range) throws IOException {
+        return eventStore.readView((table, index, aggregates) -> totalEmployees(table, index, aggregates, range));
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "events-by-month"}, histogram = true)
     public Map<String, List<EventDTO>> getEmployeeEventsByMonth(final String event) throws IOException {
-        return readRecordsFromFile().stream()
-                .filter(r -> event.equals(r.getEvent()))
-                .collect(Collectors.groupingBy(
-                        r -> r.getEventDate().format(MONTH_FORMATTER)
-                ));
+        return eventStore.readIndexed((table, index) -> eventsByMonth(table, index, event, PeriodRange.ALL));
     }
 
     @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "events-by-month"}, histogram = true)
+    public Map<String, List<EventDTO>> getEmployeeEventsByMonth(final String event, final PeriodRange range) throws IOException {
+        return eventStore.readIndexed((table, index) -> eventsByMonth(table, index, event, range));
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "employee-financial"}, histogram = true)
     public List<EmployeeFinancialReportDTO> getEmployeeFinancialReport() throws IOException {
-        return readRecordsFromFile().stream()
-                .collect(Collectors.groupingBy(EventDTO::getEmpId))
-                .entrySet().stream()
-                .map(e -> {
-                    final double totalAmount = e.getValue().stream()
-                            .filter(v -> "SALARY".equals(v.getEvent()) || "BONUS".equals(v.getEvent())
-                                    || "REIMBURSEMENT".equals(v.getEvent()))
-                            .mapToDouble(EventDTO::getValue)
-                            .sum();
-                    final EventDTO first = e.getValue().get(0);
-                    return new EmployeeFinancialReportDTO(first.getEmpId(), first.getFirstName(), first.getLastName(), totalAmount);
-                })
-                .collect(Collectors.toList());
+        return eventStore.readView((table, index, aggregates) ->
+                employeeFinancialReport(table, index, aggregates, PeriodRange.ALL));
     }
 
     @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "employee-financial"}, histogram = true)
+    public List<EmployeeFinancialReportDTO> getEmployeeFinancialReport(final PeriodRange range) throws IOException {
+        return eventStore.readView((table, index, aggregates) ->
+                employeeFinancialReport(table, index, aggregates, range));
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "monthly-amount"}, histogram = true)
     public List<MonthlyAmountReportDTO> getMonthlyAmountReport() throws IOException {
-        return readRecordsFromFile().stream()
-                .filter(r -> Arrays.asList("SALARY", "BONUS", "REIMBURSEMENT").contains(r.getEvent()))
-                .collect(Collectors.groupingBy(
-                        r -> r.getEventDate().format(MONTH_FORMATTER),
-                        Collectors.summarizingDouble(EventDTO::getValue)
-                ))
-                .entrySet().stream()
-                .map(e -> new MonthlyAmountReportDTO((String) e.getKey(), e.getValue().getSum(), (int) e.getValue().getCount()))
-                .collect(Collectors.toList());
+        return eventStore.readAggregates(aggregates -> monthlyAmountReport(aggregates, PeriodRange.ALL));
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "monthly-amount"}, histogram = true)
+    public List<MonthlyAmountReportDTO> getMonthlyAmountReport(final PeriodRange range) throws IOException {
+        return eventStore.readAggregates(aggregates -> monthlyAmountReport(aggregates, range));
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "dashboard"}, histogram = true)
+    public DashboardDTO getDashboard(final PeriodRange range) throws IOException {
+        return eventStore.readView((table, index, aggregates) -> new DashboardDTO(
+                monthlySalaryReport(aggregates, range),
+                monthlyAmountReport(aggregates, range),
+                employeeFinancialReport(table, index, aggregates, range),
+                totalEmployees(table, index, aggregates, range),
+                eventsByMonth(table, index, "ONBOARD", range),
+                eventsByMonth(table, index, "EXIT", range)));
+    }
+
+    @Override
+    @Timed(value = "payroll.report", extraTags = {"report", "aggregate"}, histogram = true)
+    public List<AggregationRowDTO> aggregate(final AggregationQuery query) throws IOException {
+        return eventStore.readIndexed(query::run);
+    }
+
+    @Override
+    public PayrollProcessingResponse processStream(final InputStream input) throws IOException {
+        try (final IngestionLimiter.Permit permit = ingestionLimiter.acquire()) {
+            permit.reserveRows(streamChunkRows);
+            return processStream(input, permit);
+        } catch (final IngestionRejectedException e) {
+            payrollMetrics.recordRejectedUpload(e.getReason());
+            throw e;
+        }
     }
 
     /**
-     * Writes a list of event records to a JSON file.
-     *
-     * @param records the list of event data transfer objects to write
-     * @throws IOException if there's an error writing to the file
+     * Parses a streamed upload, committing each full chunk of rows before parsing on into the
+     * same, reused chunk.
      */
-    private synchronized void writeRecordsToFile(final List<EventDTO> records) throws IOException {
-        final File file = DATA_FILE_PATH.toFile();
-        final ObjectMapper mapper = ObjectMapperUtil.getMapper();
-        if (!file.exists()) {
-            final boolean dirsMade = file.getParentFile().mkdirs();
-            if (!dirsMade && !file.getParentFile().exists()) {
-                throw new IOException("Failed to create directories for data file");
-            }
-            final boolean fileCreated = file.createNewFile();
-            if (!fileCreated && !file.exists()) {
-                throw new IOException("Failed to create data file");
-            }
-        }
-        try {
-            List<EventDTO> existingRecords = new ArrayList<>();
-            if (file.length() > 0) {
-                existingRecords = mapper.readValue(file, new TypeReference<>() {
-                });
-                LOGGER.info("Read {} existing records.", existingRecords.size());
-            }
-            existingRecords.addAll(records);
-            mapper.writeValue(file, existingRecords);
-            LOGGER.info("Successfully written {} total records to file.", existingRecords.size());
-            final List<EventDTO> writtenRecords = mapper.readValue(file, new TypeReference<>() {
+    private PayrollProcessingResponse processStream(final InputStream input, final IngestionLimiter.Permit permit)
+            throws IOException {
+        final List<EventDTO> chunk = new ArrayList<>(streamChunkRows);
+        final StreamTotals totals = new StreamTotals();
+        final long start = System.nanoTime();
+        final ParseResult result;
+        try (final Reader reader = new InputStreamReader(CompressionUtil.decompressIfGzipped(input),
+                StandardCharsets.UTF_8)) {
+            result = new PayrollCsvParser().parse(reader, event -> {
+                chunk.add(event);
+                if (chunk.size() == streamChunkRows) {
+                    commitChunk(chunk, totals);
+                }
             });
-            LOGGER.info("Read back {} records successfully.", writtenRecords.size());
-        } catch (final Exception e) {
-            LOGGER.error("Failed to write records to file", e);
         }
+        commitChunk(chunk, totals);
+        payrollMetrics.recordParse(result, System.nanoTime() - start - totals.commitNanos);
+        LOGGER.info("Streamed {} records in {} chunk(s), rejected {}, skipped {} duplicates",
+                result.getRowsParsed(), totals.chunks, result.getRowsRejected(), totals.duplicates);
+        final PayrollProcessingResponse response = new PayrollProcessingResponse(true);
+        response.setDuplicates(totals.duplicates);
+        return response;
     }
 
     /**
-     * Reads event records from a JSON file.
+     * Commits and clears a chunk of a streamed upload.
+     */
+    private void commitChunk(final List<EventDTO> chunk, final StreamTotals totals) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final CommitResult result = eventStore.append(chunk);
+        final long elapsed = System.nanoTime() - start;
+        payrollMetrics.recordCommit(result, elapsed);
+        totals.chunks++;
+        totals.duplicates += result.getDuplicateCount();
+        totals.commitNanos += elapsed;
+        chunk.clear();
+    }
+
+    /**
+     * Parses one upload into memory, reserving room for its rows with the ingestion limiter
+     * ahead of buffering them. Room is reserved {@value #ROWS_PER_RESERVATION} rows at a time;
+     * once the file is parsed the unused end of the last reservation is given back, or all of
+     * it if the parse fails, so the upload only holds room for the rows it actually buffered.
+     * Gzip-compressed files are decompressed as they are read.
      *
-     * @return a list of event data transfer objects
-     * @throws IOException if there's an error reading from the file
+     * @param source   the upload contents to parse
+     * @param progress the counters updated as rows are parsed
+     * @param permit   the upload's ingestion permit
+     * @return the parsed events
+     * @throws IOException if the file cannot be read or no room can be reserved for its rows
      */
-    private List<EventDTO> readRecordsFromFile() throws IOException {
-        final File file = DATA_FILE_PATH.toFile();
-        final ObjectMapper mapper = ObjectMapperUtil.getMapper();
-        LOGGER.info(">>> File exists ? {}, File length: {}", file.exists(), file.length());
-        if (file.exists() && file.length() > 0) {
+    private List<EventDTO> parseFile(final InputStreamSource source, final ParseProgress progress,
+                                     final IngestionLimiter.Permit permit) throws IOException {
+        try (final Reader reader = new InputStreamReader(CompressionUtil.decompressIfGzipped(source.getInputStream()),
+                StandardCharsets.UTF_8)) {
+            final List<EventDTO> records = new ArrayList<>();
+            final int[] reserved = new int[1];
+            int buffered = 0;
             try {
-                return mapper.readValue(file, mapper.getTypeFactory().constructCollectionType(List.class, EventDTO.class));
-            } catch (final IOException e) {
-                LOGGER.error("Error reading from file, possibly due to formatting: {}", e.getMessage());
-                return new ArrayList<>();
+                final long start = System.nanoTime();
+                final ParseResult result = new PayrollCsvParser(progress).parse(reader, event -> {
+                    if (records.size() == reserved[0]) {
+                        permit.reserveRows(ROWS_PER_RESERVATION);
+                        reserved[0] += ROWS_PER_RESERVATION;
+                    }
+                    records.add(event);
+                });
+                payrollMetrics.recordParse(result, System.nanoTime() - start);
+                LOGGER.debug("Parsed {} records from {}, rejected {}", result.getRowsParsed(),
+                        sourceName(source), result.getRowsRejected());
+                buffered = records.size();
+                return records;
+            } finally {
+                permit.releaseRows(reserved[0] - buffered);
             }
-        } else {
-            return new ArrayList<>();
         }
     }
 
     /**
-     * Parses a single line from the file into an event data transfer object.
-     *
-     * @param line the line to parse
-     * @return the event data transfer object, or null if the line is a header or invalid
+     * Builds the monthly salary report: by month name across all time, or by year-month when
+     * the range is bounded. The other report builders below follow the same convention.
      */
-    private EventDTO parseLineToEvent(final String line) {
-        if (line.startsWith("SequenceNo")) {
-            return null;
+    private static List<MonthlyReportDTO> monthlySalaryReport(final ReportAggregates aggregates,
+                                                              final PeriodRange range) {
+        if (range.isAll()) {
+            return aggregates.getMonthlySalary().entrySet().stream()
+                    .map(e -> new MonthlyReportDTO(e.getKey(), e.getValue().getSum(), (int) e.getValue().getCount()))
+                    .collect(Collectors.toList());
         }
-        final String[] data = line.split(",", -1);
-        final EventDTO event = new EventDTO();
-        if (data.length < 9) {
-            LOGGER.error("Incomplete data line: {}, skipping it", line);
-            return null;
+        return aggregates.periodsIn(range).entrySet().stream()
+                .filter(e -> e.getValue().getSalary().getCount() > 0)
+                .map(e -> new MonthlyReportDTO(e.getKey().toString(), e.getValue().getSalary().getSum(),
+                        (int) e.getValue().getSalary().getCount()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<MonthlyAmountReportDTO> monthlyAmountReport(final ReportAggregates aggregates,
+                                                                    final PeriodRange range) {
+        if (range.isAll()) {
+            return aggregates.getMonthlyAmount().entrySet().stream()
+                    .map(e -> new MonthlyAmountReportDTO(e.getKey(), e.getValue().getSum(), (int) e.getValue().getCount()))
+                    .collect(Collectors.toList());
         }
-        try {
-            return new EventDTO(
-                    data[0].trim(), data[1].trim(), data[2].trim(),
-                    data[3].trim(), data[4].trim(), data[5].trim(),
-                    Double.parseDouble(data[6].trim()),
-                    LocalDate.parse(data[7].trim(), DateTimeFormatter.ofPattern("dd-MM-yyyy")),
-                    cleanNotes(data[8].trim())
-            );
-        } catch (final NumberFormatException e) {
-            LOGGER.error("Error parsing numeric fields", e);
-            return null;
+        return aggregates.periodsIn(range).entrySet().stream()
+                .filter(e -> e.getValue().getAmount().getCount() > 0)
+                .map(e -> new MonthlyAmountReportDTO(e.getKey().toString(), e.getValue().getAmount().getSum(),
+                        (int) e.getValue().getAmount().getCount()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<EmployeeFinancialReportDTO> employeeFinancialReport(final EventTable table,
+                                                                            final EventIndex index,
+                                                                            final ReportAggregates aggregates,
+                                                                            final PeriodRange range) {
+        if (range.isAll()) {
+            return aggregates.getEmployees().entrySet().stream()
+                    .map(e -> new EmployeeFinancialReportDTO(e.getKey(), e.getValue().getFirstName(),
+                            e.getValue().getLastName(), e.getValue().getTotalAmountPaid()))
+                    .collect(Collectors.toList());
+        }
+        final Map<String, Long> paidCents = new LinkedHashMap<>();
+        employeesInRange(table, index, range).forEach(empId -> paidCents.put(empId, 0L));
+        for (final ReportAggregates.PeriodTotals period : aggregates.periodsIn(range).values()) {
+            period.getPaidCentsByEmployee().forEach((empId, cents) -> paidCents.merge(empId, cents, Long::sum));
         }
+        return paidCents.entrySet().stream()
+                .map(e -> {
+                    final ReportAggregates.EmployeeTotal employee = aggregates.getEmployees().get(e.getKey());
+                    return new EmployeeFinancialReportDTO(e.getKey(), employee.getFirstName(),
+                            employee.getLastName(), MoneyUtil.toAmount(e.getValue()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static int totalEmployees(final EventTable table, final EventIndex index,
+                                      final ReportAggregates aggregates, final PeriodRange range) {
+        return range.isAll() ? aggregates.getEmployees().size() : employeesInRange(table, index, range).size();
     }
 
     /**
-     * Cleans the notes field from the file, removing surrounding quotes.
-     *
-     * @param notes the notes string to clean
-     * @return the cleaned notes string
+     * Collects the employees with at least one event in range, in the order of their first
+     * event, visiting only the rows the month postings point at.
+     */
+    private static Set<String> employeesInRange(final EventTable table, final EventIndex index,
+                                                final PeriodRange range) {
+        final BitSet seen = new BitSet();
+        final Set<String> empIds = new LinkedHashSet<>();
+        for (final IntList rows : index.rowsInRange(range)) {
+            for (int i = 0; i < rows.size(); i++) {
+                final int code = table.empIdCode(rows.get(i));
+                if (!seen.get(code)) {
+                    seen.set(code);
+                    empIds.add(table.empIds().decode(code));
+                }
+            }
+        }
+        return empIds;
+    }
+
+    /**
+     * Groups the events of one type by month, visiting only the rows the event type index
+     * points at.
+     */
+    private static Map<String, List<EventDTO>> eventsByMonth(final EventTable table, final EventIndex index,
+                                                             final String event, final PeriodRange range) {
+        final IntList rows = index.rowsOfEventType(event);
+        if (range.isAll()) {
+            final Map<String, List<EventDTO>> eventsByMonth = new HashMap<>();
+            for (int i = 0; i < rows.size(); i++) {
+                final EventDTO match = table.toEvent(rows.get(i));
+                eventsByMonth.computeIfAbsent(match.getEventDate().format(MONTH_FORMATTER), k -> new ArrayList<>())
+                        .add(match);
+            }
+            return eventsByMonth;
+        }
+        final Map<String, List<EventDTO>> eventsByMonth = new TreeMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            final int row = rows.get(i);
+            final LocalDate eventDate = LocalDate.ofEpochDay(table.epochDay(row));
+            if (range.contains(eventDate)) {
+                eventsByMonth.computeIfAbsent(YearMonth.from(eventDate).toString(), k -> new ArrayList<>())
+                        .add(table.toEvent(row));
+            }
+        }
+        return eventsByMonth;
+    }
+
+    /**
+     * Encodes the position of an entry of a ranged report as its month, counted from year 0,
+     * in the high half and its row in the low half. A position names the entry rather than
+     * counting the ones before it, so uploads made while paging do not shift it, and cursor 0
+     * is the start of any range.
      */
-    private String cleanNotes(final String notes) {
-        if (notes.startsWith("\"") && notes.endsWith("\"")) {
-            return notes.substring(1, notes.length() - 1);
+    private static long rangeCursor(final YearMonth month, final int row) {
+        return ChronoUnit.MONTHS.between(YearMonth.of(0, 1), month) << 32 | row;
+    }
+
+    /**
+     * Finds the index of the first of a month's rows, which are in ascending order, at or
+     * after the given row.
+     */
+    private static int firstRowFrom(final IntList rows, final int row) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (rows.get(mid) < row) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
-        return notes;
+        return low;
+    }
+
+    private static YearlyFinancialReportDTO toYearlyFinancialReport(final EventTable table, final int row) {
+        return new YearlyFinancialReportDTO(table.eventTypes().decode(table.eventTypeCode(row)),
+                table.empIds().decode(table.empIdCode(row)),
+                Date.from(LocalDate.ofEpochDay(table.epochDay(row)).atStartOfDay(ZoneId.systemDefault()).toInstant()),
+                table.value(row));
+    }
+
+    private static String sourceName(final InputStreamSource source) {
+        if (source instanceof MultipartFile file) {
+            return file.getOriginalFilename();
+        }
+        if (source instanceof Resource resource) {
+            return resource.getFilename();
+        }
+        return source.toString();
+    }
+
+    /**
+     * Running totals of the chunks committed for one streamed upload.
+     */
+    private static final class StreamTotals {
+        private long chunks;
+        private long duplicates;
+        private long commitNanos;
     }
 }
@@ -0,0 +1,53 @@
+package com.payrollsystem.service;
+
+import com.payrollsystem.store.EventStore;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Periodically snapshots the event store in the background and compacts the event log
+ * behind the snapshot, so restart time depends on the log tail rather than the full history.
+ * The report aggregates are checkpointed on the same schedule and on shutdown.
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger LOGGER = LogManager.getLogger(SnapshotService.class);
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Value("${payroll.snapshot.min-new-events:100000}")
+    private long minNewEvents;
+
+    @Value("${payroll.snapshot.compact:true}")
+    private boolean compact;
+
+    /**
+     * Takes a snapshot if enough events were committed since the last one, and checkpoints
+     * the report aggregates if they changed.
+     */
+    @Scheduled(initialDelayString = "${payroll.snapshot.interval-ms:300000}",
+            fixedDelayString = "${payroll.snapshot.interval-ms:300000}")
+    public void snapshot() {
+        try {
+            eventStore.snapshot(minNewEvents, compact);
+        } catch (final Exception e) {
+            LOGGER.error("Failed to snapshot the event store", e);
+        }
+        eventStore.checkpointAggregates();
+    }
+
+    /**
+     * Checkpoints the report aggregates on shutdown, so the next start has no events to fold in.
+     */
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        eventStore.checkpointAggregates();
+    }
+}
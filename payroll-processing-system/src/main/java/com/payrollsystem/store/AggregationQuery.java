@@ -0,0 +1,419 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.AggregationRowDTO;
+import com.payrollsystem.exception.InvalidQueryException;
+import com.payrollsystem.util.MoneyUtil;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ad-hoc aggregation over the event table: filter on event type, employee, designation and
+ * period, group by any of those dimensions plus month, quarter or year, and sum, count, take the
+ * minimum, maximum or average of the event values.
+ * <p>
+ * Queries run batch at a time over the table columns rather than over {@code EventDTO}s. For each
+ * batch of {@value #BATCH_SIZE} candidate rows, the filters fill a selection vector by comparing
+ * dictionary codes and epoch days, the group-by dimensions are packed column by column into one
+ * {@code long} key per selected row, and the values are folded into primitive per-group
+ * accumulators found through an open-addressing hash table. Candidate rows come from the most
+ * selective {@link EventIndex} posting available, so a filtered query never visits rows of
+ * other employees, event types or months. Values are summed as exact cents.
+ */
+public final class AggregationQuery {
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int MAX_DIMENSIONS = 3;
+    private static final int NO_FILTER = -2;
+
+    private final String eventType;
+    private final String empId;
+    private final String designation;
+    private final PeriodRange range;
+    private final List<Dimension> groupBy;
+    private final Aggregate aggregate;
+
+    private AggregationQuery(final String eventType, final String empId, final String designation,
+                             final PeriodRange range, final List<Dimension> groupBy, final Aggregate aggregate) {
+        this.eventType = eventType;
+        this.empId = empId;
+        this.designation = designation;
+        this.range = range;
+        this.groupBy = groupBy;
+        this.aggregate = aggregate;
+    }
+
+    /**
+     * Builds a query from request parameters.
+     *
+     * @param eventType   the event type to keep, or null for all
+     * @param empId       the employee to keep, or null for all
+     * @param designation the designation to keep, or null for all
+     * @param range       the months to keep
+     * @param groupBy     the names of the dimensions to group by, at most {@value #MAX_DIMENSIONS},
+     *                    or null for a single total
+     * @param aggregate   the name of the aggregate function, or null for {@code sum}
+     * @return the query
+     * @throws InvalidQueryException if a dimension or function is unknown, or too many dimensions are given
+     */
+    public static AggregationQuery of(final String eventType, final String empId, final String designation,
+                                      final PeriodRange range, final List<String> groupBy, final String aggregate) {
+        final List<Dimension> dimensions = new ArrayList<>();
+        if (groupBy != null) {
+            for (final String name : groupBy) {
+                final Dimension dimension = Dimension.named(name.trim());
+                if (!dimensions.contains(dimension)) {
+                    dimensions.add(dimension);
+                }
+            }
+        }
+        if (dimensions.size() > MAX_DIMENSIONS) {
+            throw new InvalidQueryException("At most " + MAX_DIMENSIONS + " group-by dimensions are supported");
+        }
+        return new AggregationQuery(blankToNull(eventType), blankToNull(empId), blankToNull(designation), range,
+                List.copyOf(dimensions), aggregate == null ? Aggregate.SUM : Aggregate.named(aggregate.trim()));
+    }
+
+    /**
+     * Runs the query.
+     *
+     * @param table the events
+     * @param index the indexes over the events
+     * @return one row per group, ordered by group key: first-seen order for employees,
+     * designations and event types, and oldest first for periods
+     */
+    public List<AggregationRowDTO> run(final EventTable table, final EventIndex index) {
+        final int eventTypeCode = codeOf(table.eventTypes(), eventType);
+        final int empIdCode = codeOf(table.empIds(), empId);
+        final int designationCode = codeOf(table.designations(), designation);
+        if (eventTypeCode == -1 || empIdCode == -1 || designationCode == -1) {
+            return List.of();
+        }
+        final int fromDay = range.getFrom() == null ? Integer.MIN_VALUE : (int) range.getFrom().atDay(1).toEpochDay();
+        final int toDay = range.getTo() == null ? Integer.MAX_VALUE : (int) range.getTo().atEndOfMonth().toEpochDay();
+        final Scan scan = new Scan(table, eventTypeCode, empIdCode, designationCode, fromDay, toDay);
+
+        if (empId != null) {
+            scan.postings(List.of(index.rowsOfEmployee(empId)));
+        } else if (eventType != null) {
+            scan.postings(List.of(index.rowsOfEventType(eventType)));
+        } else if (!range.isAll()) {
+            scan.postings(index.rowsInRange(range));
+        } else {
+            scan.all();
+        }
+        return scan.results();
+    }
+
+    private static int codeOf(final StringDictionary dictionary, final String value) {
+        return value == null ? NO_FILTER : dictionary.codeOf(value);
+    }
+
+    private static String blankToNull(final String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * Converts an epoch day to months since year 0, without allocating a {@code LocalDate}
+     * (days-to-civil conversion, as in {@link java.time.LocalDate#ofEpochDay}).
+     */
+    static int monthIndex(final int epochDay) {
+        final long z = epochDay + 719468L;
+        final long era = (z >= 0 ? z : z - 146096) / 146097;
+        final long dayOfEra = z - era * 146097;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    /**
+     * A group-by dimension, named as in the request.
+     */
+    public enum Dimension {
+        EVENT("event"),
+        EMP_ID("empId"),
+        DESIGNATION("designation"),
+        MONTH("month"),
+        QUARTER("quarter"),
+        YEAR("year");
+
+        private final String label;
+
+        Dimension(final String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        static Dimension named(final String name) {
+            for (final Dimension dimension : values()) {
+                if (dimension.label.equalsIgnoreCase(name)) {
+                    return dimension;
+                }
+            }
+            throw new InvalidQueryException("Unknown group-by dimension: " + name);
+        }
+
+        long distinctCodes(final EventTable table) {
+            return switch (this) {
+                case EVENT -> table.eventTypes().size();
+                case EMP_ID -> table.empIds().size();
+                case DESIGNATION -> table.designations().size();
+                case MONTH, QUARTER, YEAR -> 0;
+            };
+        }
+
+        String decode(final EventTable table, final int part) {
+            return switch (this) {
+                case EVENT -> table.eventTypes().decode(part);
+                case EMP_ID -> table.empIds().decode(part);
+                case DESIGNATION -> table.designations().decode(part);
+                case MONTH -> YearMonth.of(part / 12, part % 12 + 1).toString();
+                case QUARTER -> (part / 4) + "-Q" + (part % 4 + 1);
+                case YEAR -> String.valueOf(part);
+            };
+        }
+    }
+
+    /**
+     * An aggregate function over event values.
+     */
+    public enum Aggregate {
+        SUM, COUNT, MIN, MAX, AVG;
+
+        static Aggregate named(final String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (final IllegalArgumentException e) {
+                throw new InvalidQueryException("Unknown aggregate function: " + name);
+            }
+        }
+    }
+
+    /**
+     * State of one run: the filters resolved to codes, the batch vectors and the per-group
+     * accumulators.
+     */
+    private final class Scan {
+        private final EventTable table;
+        private final int eventTypeCode;
+        private final int empIdCode;
+        private final int designationCode;
+        private final int fromDay;
+        private final int toDay;
+        private final int bitsPerDimension;
+        private final long partMask;
+        private final int[] candidates = new int[BATCH_SIZE];
+        private final int[] selection = new int[BATCH_SIZE];
+        private final long[] keys = new long[BATCH_SIZE];
+
+        private long[] slotKeys = new long[64];
+        private int[] slotOf = new int[64];
+        private long[] groupKeys = new long[16];
+        private long[] counts = new long[16];
+        private long[] sums = new long[16];
+        private long[] mins = new long[16];
+        private long[] maxs = new long[16];
+        private int groups;
+
+        Scan(final EventTable table, final int eventTypeCode, final int empIdCode, final int designationCode,
+             final int fromDay, final int toDay) {
+            this.table = table;
+            this.eventTypeCode = eventTypeCode;
+            this.empIdCode = empIdCode;
+            this.designationCode = designationCode;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.bitsPerDimension = groupBy.isEmpty() ? 0 : Long.SIZE / groupBy.size() - 1;
+            this.partMask = groupBy.isEmpty() ? 0 : (1L << bitsPerDimension) - 1;
+            for (final Dimension dimension : groupBy) {
+                if (dimension.distinctCodes(table) > partMask) {
+                    throw new InvalidQueryException("Too many distinct " + dimension.getLabel() + " values to group by "
+                            + groupBy.size() + " dimensions");
+                }
+            }
+            Arrays.fill(slotKeys, -1);
+        }
+
+        void all() {
+            for (int start = 0; start < table.size(); start += BATCH_SIZE) {
+                final int count = Math.min(BATCH_SIZE, table.size() - start);
+                for (int i = 0; i < count; i++) {
+                    candidates[i] = start + i;
+                }
+                batch(count);
+            }
+        }
+
+        void postings(final Collection<IntList> postings) {
+            for (final IntList rows : postings) {
+                for (int start = 0; start < rows.size(); start += BATCH_SIZE) {
+                    final int count = Math.min(BATCH_SIZE, rows.size() - start);
+                    for (int i = 0; i < count; i++) {
+                        candidates[i] = rows.get(start + i);
+                    }
+                    batch(count);
+                }
+            }
+        }
+
+        private void batch(final int count) {
+            final int selected = select(count);
+            Arrays.fill(keys, 0, selected, 0L);
+            for (final Dimension dimension : groupBy) {
+                pack(dimension, selected);
+            }
+            accumulate(selected);
+        }
+
+        private int select(final int count) {
+            int selected = 0;
+            for (int i = 0; i < count; i++) {
+                final int row = candidates[i];
+                final int day = table.epochDay(row);
+                if ((eventTypeCode == NO_FILTER || table.eventTypeCode(row) == eventTypeCode)
+                        && (empIdCode == NO_FILTER || table.empIdCode(row) == empIdCode)
+                        && (designationCode == NO_FILTER || table.designationCode(row) == designationCode)
+                        && day >= fromDay && day <= toDay) {
+                    selection[selected++] = row;
+                }
+            }
+            return selected;
+        }
+
+        private void pack(final Dimension dimension, final int selected) {
+            final int shift = bitsPerDimension;
+            switch (dimension) {
+                case EVENT -> {
+                    for (int i = 0; i < selected; i++) {
+                        keys[i] = keys[i] << shift | table.eventTypeCode(selection[i]);
+                    }
+                }
+                case EMP_ID -> {
+                    for (int i = 0; i < selected; i++) {
+                        keys[i] = keys[i] << shift | table.empIdCode(selection[i]);
+                    }
+                }
+                case DESIGNATION -> {
+                    for (int i = 0; i < selected; i++) {
+                        keys[i] = keys[i] << shift | table.designationCode(selection[i]);
+                    }
+                }
+                case MONTH -> {
+                    for (int i = 0; i < selected; i++) {
+                        keys[i] = keys[i] << shift | monthIndex(table.epochDay(selection[i]));
+                    }
+                }
+                case QUARTER -> {
+                    for (int i = 0; i < selected; i++) {
+                        final int month = monthIndex(table.epochDay(selection[i]));
+                        keys[i] = keys[i] << shift | (month / 12 * 4 + month % 12 / 3);
+                    }
+                }
+                case YEAR -> {
+                    for (int i = 0; i < selected; i++) {
+                        keys[i] = keys[i] << shift | monthIndex(table.epochDay(selection[i])) / 12;
+                    }
+                }
+            }
+        }
+
+        private void accumulate(final int selected) {
+            for (int i = 0; i < selected; i++) {
+                final int group = groupOf(keys[i]);
+                final long cents = MoneyUtil.toCents(table.value(selection[i]));
+                counts[group]++;
+                sums[group] += cents;
+                mins[group] = Math.min(mins[group], cents);
+                maxs[group] = Math.max(maxs[group], cents);
+            }
+        }
+
+        /**
+         * Finds the accumulator slot of a group key by linear probing, adding the group on first sight.
+         */
+        private int groupOf(final long key) {
+            final int mask = slotKeys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (slotKeys[slot] != -1) {
+                if (slotKeys[slot] == key) {
+                    return slotOf[slot];
+                }
+                slot = slot + 1 & mask;
+            }
+            if (groups == groupKeys.length) {
+                final int capacity = groups * 2;
+                groupKeys = Arrays.copyOf(groupKeys, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                sums = Arrays.copyOf(sums, capacity);
+                mins = Arrays.copyOf(mins, capacity);
+                maxs = Arrays.copyOf(maxs, capacity);
+            }
+            final int group = groups++;
+            groupKeys[group] = key;
+            mins[group] = Long.MAX_VALUE;
+            maxs[group] = Long.MIN_VALUE;
+            slotKeys[slot] = key;
+            slotOf[slot] = group;
+            if (groups * 2 > slotKeys.length) {
+                rehash();
+            }
+            return group;
+        }
+
+        private void rehash() {
+            slotKeys = new long[slotKeys.length * 2];
+            slotOf = new int[slotKeys.length];
+            Arrays.fill(slotKeys, -1);
+            final int mask = slotKeys.length - 1;
+            for (int group = 0; group < groups; group++) {
+                int slot = Long.hashCode(groupKeys[group] * 0x9E3779B97F4A7C15L) & mask;
+                while (slotKeys[slot] != -1) {
+                    slot = slot + 1 & mask;
+                }
+                slotKeys[slot] = groupKeys[group];
+                slotOf[slot] = group;
+            }
+        }
+
+        List<AggregationRowDTO> results() {
+            final Integer[] order = new Integer[groups];
+            for (int group = 0; group < groups; group++) {
+                order[group] = group;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(groupKeys[a], groupKeys[b]));
+            final List<AggregationRowDTO> rows = new ArrayList<>(groups);
+            for (final int group : order) {
+                final Map<String, String> labels = new LinkedHashMap<>();
+                for (int d = 0; d < groupBy.size(); d++) {
+                    final int shift = (groupBy.size() - 1 - d) * bitsPerDimension;
+                    final int part = (int) (groupKeys[group] >>> shift & partMask);
+                    labels.put(groupBy.get(d).getLabel(), groupBy.get(d).decode(table, part));
+                }
+                rows.add(new AggregationRowDTO(labels, value(group), counts[group]));
+            }
+            return rows;
+        }
+
+        private double value(final int group) {
+            return switch (aggregate) {
+                case SUM -> MoneyUtil.toAmount(sums[group]);
+                case COUNT -> counts[group];
+                case MIN -> MoneyUtil.toAmount(mins[group]);
+                case MAX -> MoneyUtil.toAmount(maxs[group]);
+                case AVG -> MoneyUtil.toAmount(sums[group]) / counts[group];
+            };
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary event storage made of three append-only files:
+ * <ul>
+ *     <li>{@code records.bin}: a header followed by fixed-width {@value #RECORD_SIZE}-byte records
+ *     holding dictionary codes, the epoch day, the value and references into {@code strings.bin}</li>
+ *     <li>{@code dictionary.bin}: the length-prefixed UTF-8 strings behind the dictionary codes
+ *     (employee ids, names, designations, event types), in code order</li>
+ *     <li>{@code strings.bin}: length-prefixed UTF-8 sequence numbers and notes</li>
+ * </ul>
+ * Because records are fixed width, {@link #table()} maps {@code records.bin} with
+ * {@link FileChannel#map} and reports read rows straight from the page cache without
+ * deserializing them into the heap.
+ */
+public class BinaryEventLog implements EventStorage {
+
+    static final int RECORD_SIZE = 48;
+    static final int HEADER_SIZE = 8;
+    private static final int MAGIC = 0x50415952;
+    private static final int VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+    private static final Logger LOGGER = LogManager.getLogger(BinaryEventLog.class);
+
+    private final Path directory;
+    private final Path recordsFile;
+    private final Path dictionaryFile;
+    private final Path stringsFile;
+    private final StringDictionary dictionary = new StringDictionary();
+    private FileChannel stringsReader;
+    private long recordCount;
+    private long stringsEnd;
+    private int persistedDictionarySize;
+
+    /**
+     * Creates a binary event log rooted at the given directory.
+     *
+     * @param directory the directory holding the storage files
+     */
+    public BinaryEventLog(final Path directory) {
+        this.directory = directory;
+        this.recordsFile = directory.resolve("records.bin");
+        this.dictionaryFile = directory.resolve("dictionary.bin");
+        this.stringsFile = directory.resolve("strings.bin");
+    }
+
+    /**
+     * Creates the storage files if needed, loads the dictionary and drops any partially
+     * written trailing record or dictionary entry left behind by an interrupted append.
+     *
+     * @throws IOException if the files cannot be created or read
+     */
+    @Override
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        try (final FileChannel records = FileChannel.open(recordsFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (records.size() < HEADER_SIZE) {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+                records.truncate(0);
+                records.write(header, 0);
+            } else {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                records.read(header, 0);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("Unsupported binary event storage format in " + recordsFile);
+                }
+            }
+            recordCount = (records.size() - HEADER_SIZE) / RECORD_SIZE;
+            records.truncate(HEADER_SIZE + recordCount * RECORD_SIZE);
+        }
+        loadDictionary();
+        if (!Files.exists(stringsFile)) {
+            Files.createFile(stringsFile);
+        }
+        stringsEnd = Files.size(stringsFile);
+        if (stringsReader != null) {
+            stringsReader.close();
+        }
+        stringsReader = FileChannel.open(stringsFile, StandardOpenOption.READ);
+        LOGGER.info("Opened binary event storage at {} with {} records", directory, recordCount);
+    }
+
+    /**
+     * Appends a batch of records. Dictionary entries and strings are written and synced before
+     * the records referencing them, so a crash never leaves a record pointing at missing data.
+     *
+     * @param records the records to append
+     * @return the number of bytes written
+     * @throws IOException if the storage cannot be written
+     */
+    @Override
+    public synchronized long append(final List<EventDTO> records) throws IOException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        long bytesWritten = 0;
+        final ByteArrayOutputStream strings = new ByteArrayOutputStream(records.size() * 64);
+        final DataOutputStream stringsOut = new DataOutputStream(strings);
+        final ByteBuffer recordBuffer = ByteBuffer.allocate(records.size() * RECORD_SIZE);
+        for (final EventDTO record : records) {
+            recordBuffer.putInt(dictionary.encode(record.getEmpId()))
+                    .putInt(dictionary.encode(record.getFirstName()))
+                    .putInt(dictionary.encode(record.getLastName()))
+                    .putInt(dictionary.encode(record.getDesignation()))
+                    .putInt(dictionary.encode(record.getEvent()))
+                    .putInt((int) record.getEventDate().toEpochDay())
+                    .putDouble(record.getValue())
+                    .putLong(stringsEnd + stringsOut.size());
+            writeString(stringsOut, record.getSequenceNo());
+            recordBuffer.putLong(stringsEnd + stringsOut.size());
+            writeString(stringsOut, record.getNotes());
+        }
+        if (dictionary.size() > persistedDictionarySize) {
+            final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+            final DataOutputStream entriesOut = new DataOutputStream(entries);
+            for (int code = persistedDictionarySize; code < dictionary.size(); code++) {
+                writeString(entriesOut, dictionary.decode(code));
+            }
+            write(dictionaryFile, entries.toByteArray());
+            bytesWritten += entries.size();
+            persistedDictionarySize = dictionary.size();
+        }
+        write(stringsFile, strings.toByteArray());
+        stringsEnd += strings.size();
+        write(recordsFile, recordBuffer.array());
+        recordCount += records.size();
+        return bytesWritten + strings.size() + recordBuffer.capacity();
+    }
+
+    @Override
+    public List<EventDTO> readAll() throws IOException {
+        return readFrom(0);
+    }
+
+    /**
+     * Reads the records from the given record number on straight out of the mapped table.
+     *
+     * @param firstRecord the number of the first record to read
+     * @return the records from {@code firstRecord} on
+     * @throws IOException if the records file cannot be mapped
+     */
+    @Override
+    public List<EventDTO> readFrom(final long firstRecord) throws IOException {
+        return readRange(firstRecord, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the records in a range of record numbers straight out of the mapped table.
+     *
+     * @param fromRecord the number of the first record to read
+     * @param toRecord   the number after the last record to read
+     * @return the records in range
+     * @throws IOException if the records file cannot be mapped
+     */
+    @Override
+    public List<EventDTO> readRange(final long fromRecord, final long toRecord) throws IOException {
+        final EventTable table = table();
+        final int to = (int) Math.min(toRecord, table.size());
+        final List<EventDTO> records = new ArrayList<>((int) Math.max(0, to - fromRecord));
+        for (int row = (int) fromRecord; row < to; row++) {
+            records.add(table.toEvent(row));
+        }
+        return records;
+    }
+
+    /**
+     * Maps the records written so far into a read-only table.
+     *
+     * @return a zero-copy table over the stored records
+     * @throws IOException if the records file cannot be mapped
+     */
+    @Override
+    public synchronized EventTable table() throws IOException {
+        final int rows = (int) recordCount;
+        final int rowsPerChunk = MappedEventTable.ROWS_PER_CHUNK;
+        final MappedByteBuffer[] chunks = new MappedByteBuffer[(rows + rowsPerChunk - 1) / rowsPerChunk];
+        try (final FileChannel records = FileChannel.open(recordsFile, StandardOpenOption.READ)) {
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                final long firstRow = (long) chunk * rowsPerChunk;
+                final long chunkRows = Math.min(rowsPerChunk, rows - firstRow);
+                chunks[chunk] = records.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + firstRow * RECORD_SIZE, chunkRows * RECORD_SIZE);
+            }
+        }
+        return new MappedEventTable(chunks, rows, dictionary.view(), this::readString);
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return recordCount == 0;
+    }
+
+    @Override
+    public long sizeInBytes() throws IOException {
+        return Files.size(recordsFile) + Files.size(dictionaryFile) + Files.size(stringsFile);
+    }
+
+    private void loadDictionary() throws IOException {
+        if (!Files.exists(dictionaryFile)) {
+            Files.createFile(dictionaryFile);
+            return;
+        }
+        final ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(dictionaryFile));
+        while (entries.remaining() >= Integer.BYTES) {
+            final int start = entries.position();
+            final int length = entries.getInt();
+            if (length > entries.remaining()) {
+                entries.position(start);
+                break;
+            }
+            if (length == NULL_LENGTH) {
+                dictionary.encode(null);
+            } else {
+                dictionary.encode(new String(entries.array(), entries.position(), length, StandardCharsets.UTF_8));
+                entries.position(entries.position() + length);
+            }
+        }
+        persistedDictionarySize = dictionary.size();
+        if (entries.position() < entries.capacity()) {
+            try (final FileChannel channel = FileChannel.open(dictionaryFile, StandardOpenOption.WRITE)) {
+                channel.truncate(entries.position());
+            }
+        }
+    }
+
+    private String readString(final long offset) {
+        try {
+            final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            stringsReader.read(length, offset);
+            final int size = length.getInt(0);
+            if (size == NULL_LENGTH) {
+                return null;
+            }
+            final ByteBuffer bytes = ByteBuffer.allocate(size);
+            while (bytes.hasRemaining() && stringsReader.read(bytes, offset + Integer.BYTES + bytes.position()) > 0) {
+                // keep reading until the whole string is in
+            }
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to read string at offset " + offset + " of " + stringsFile, e);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Appends bytes to a file and syncs them to disk, cutting the file back to its previous length if the write fails
+     * part way so that later appends never land behind a torn entry.
+     */
+    private static void write(final Path file, final byte[] bytes) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            final long start = channel.size();
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, start + buffer.position());
+                }
+                channel.force(false);
+            } catch (final IOException e) {
+                channel.truncate(start);
+                throw e;
+            }
+        }
+    }
+}
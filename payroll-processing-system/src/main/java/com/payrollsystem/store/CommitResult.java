@@ -0,0 +1,37 @@
+package com.payrollsystem.store;
+
+import java.util.BitSet;
+
+/**
+ * Outcome of committing a batch to the {@link EventStore}: the bytes written and which
+ * records of the batch were skipped as duplicates of already committed sequence numbers.
+ */
+public class CommitResult {
+
+    private final long bytesWritten;
+    private final BitSet duplicates;
+
+    public CommitResult(final long bytesWritten, final BitSet duplicates) {
+        this.bytesWritten = bytesWritten;
+        this.duplicates = duplicates;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public int getDuplicateCount() {
+        return duplicates.cardinality();
+    }
+
+    /**
+     * Counts the duplicates among a range of the committed batch.
+     *
+     * @param from the first position in the batch, inclusive
+     * @param to   the last position in the batch, exclusive
+     * @return the number of records in the range that were skipped as duplicates
+     */
+    public int countDuplicates(final int from, final int to) {
+        return duplicates.get(from, to).cardinality();
+    }
+}
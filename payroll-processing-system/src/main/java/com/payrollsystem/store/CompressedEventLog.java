@@ -0,0 +1,593 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Event storage made of independently deflated blocks of up to {@value #BLOCK_RECORDS} records,
+ * appended to a single {@code blocks.dat} file.
+ * <p>
+ * Each block starts with a header holding its record count, its compressed and uncompressed
+ * lengths and a CRC32 of the compressed bytes. The block index, the file offset and first
+ * record number of every block, is rebuilt from these headers on open, so a read from any
+ * record number only touches the blocks from there on. Because blocks are independent, large
+ * appends compress them in parallel and scans inflate them in parallel across cores.
+ * <p>
+ * Records are encoded in a compact binary form before compression, so the repeated names,
+ * designations and event types of consecutive rows deflate to a fraction of their NDJSON size.
+ * <p>
+ * Appends are synced before they return, but only full blocks are deflated. Records that do
+ * not fill a block yet are appended, encoded but uncompressed, to a {@code tail.dat} file and
+ * kept in memory; once the tail reaches {@value #BLOCK_RECORDS} records it is deflated into a
+ * block and the tail file is rewritten with whatever is left over. Small commits therefore
+ * end up in full, well compressed blocks rather than one small block each. The tail file
+ * header holds the number of its first record, so tail records already written to a block
+ * before a crash are recognised and skipped on open.
+ */
+public class CompressedEventLog implements EventStorage {
+
+    static final int BLOCK_RECORDS = 8192;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int BLOCK_HEADER_SIZE = 20;
+    private static final int MAGIC = 0x5041595A;
+    private static final int BLOCK_MAGIC = 0x50424C4B;
+    private static final int TAIL_MAGIC = 0x5054414C;
+    private static final int TAIL_HEADER_SIZE = 16;
+    private static final int CHUNK_HEADER_SIZE = 12;
+    private static final int VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+    private static final Logger LOGGER = LogManager.getLogger(CompressedEventLog.class);
+
+    private final Path directory;
+    private final Path blocksFile;
+    private final Path tailFile;
+    private final List<Block> blocks = new ArrayList<>();
+    private final List<EventDTO> tail = new ArrayList<>();
+    private long recordCount;
+    private long end;
+    private long tailEnd;
+
+    /**
+     * Creates a compressed event log rooted at the given directory.
+     *
+     * @param directory the directory holding the block file
+     */
+    public CompressedEventLog(final Path directory) {
+        this.directory = directory;
+        this.blocksFile = directory.resolve("blocks.dat");
+        this.tailFile = directory.resolve("tail.dat");
+    }
+
+    /**
+     * Creates the block file if needed, rebuilds the block index from the block headers and
+     * reads the tail. A partially written or corrupt trailing block or tail append, as left
+     * behind by an interrupted append, is cut off.
+     *
+     * @throws IOException if the files cannot be created or read, or the tail does not follow
+     *                     on from the blocks
+     */
+    @Override
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        blocks.clear();
+        tail.clear();
+        recordCount = 0;
+        try (final FileChannel channel = FileChannel.open(blocksFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < FILE_HEADER_SIZE) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+            } else {
+                final ByteBuffer header = readFully(channel, 0, FILE_HEADER_SIZE);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IOException("Unsupported compressed event storage format in " + blocksFile);
+                }
+            }
+            long offset = FILE_HEADER_SIZE;
+            while (offset + BLOCK_HEADER_SIZE <= channel.size()) {
+                final ByteBuffer header = readFully(channel, offset, BLOCK_HEADER_SIZE);
+                final Block block = new Block(offset, recordCount, header.getInt(4), header.getInt(8),
+                        header.getInt(12), header.getInt(16));
+                if (header.getInt(0) != BLOCK_MAGIC || block.compressedLength < 0
+                        || offset + BLOCK_HEADER_SIZE + block.compressedLength > channel.size()) {
+                    break;
+                }
+                blocks.add(block);
+                recordCount += block.records;
+                offset += BLOCK_HEADER_SIZE + block.compressedLength;
+            }
+            if (!blocks.isEmpty() && !checksumMatches(channel, blocks.get(blocks.size() - 1))) {
+                final Block torn = blocks.remove(blocks.size() - 1);
+                recordCount -= torn.records;
+                offset = torn.offset;
+            }
+            if (offset < channel.size()) {
+                LOGGER.warn("Truncating {} torn byte(s) at the end of {}", channel.size() - offset, blocksFile);
+                channel.truncate(offset);
+            }
+            end = offset;
+        }
+        openTail();
+        LOGGER.info("Opened compressed event storage at {} with {} records in {} blocks and {} in the tail",
+                directory, recordCount, blocks.size(), tail.size());
+    }
+
+    /**
+     * Reads the tail file, dropping a torn trailing append and any records that were already
+     * deflated into a block when the tail was last rewritten.
+     */
+    private void openTail() throws IOException {
+        if (!Files.exists(tailFile)) {
+            writeTail(List.of());
+            return;
+        }
+        final List<EventDTO> records = new ArrayList<>();
+        final long firstRecord;
+        try (final FileChannel channel = FileChannel.open(tailFile, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            final ByteBuffer header = readFully(channel, 0, TAIL_HEADER_SIZE);
+            if (header.limit() < TAIL_HEADER_SIZE || header.getInt(0) != TAIL_MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported compressed event storage tail in " + tailFile);
+            }
+            firstRecord = header.getLong(8);
+            long offset = TAIL_HEADER_SIZE;
+            while (offset + CHUNK_HEADER_SIZE <= channel.size()) {
+                final ByteBuffer chunk = readFully(channel, offset, CHUNK_HEADER_SIZE);
+                final int count = chunk.getInt(0);
+                final int length = chunk.getInt(4);
+                if (count <= 0 || length < 0 || offset + CHUNK_HEADER_SIZE + length > channel.size()) {
+                    break;
+                }
+                final byte[] raw = readFully(channel, offset + CHUNK_HEADER_SIZE, length).array();
+                final CRC32 crc = new CRC32();
+                crc.update(raw);
+                if ((int) crc.getValue() != chunk.getInt(8)) {
+                    break;
+                }
+                records.addAll(decodeRecords(raw, count));
+                offset += CHUNK_HEADER_SIZE + length;
+            }
+            if (offset < channel.size()) {
+                LOGGER.warn("Truncating {} torn byte(s) at the end of {}", channel.size() - offset, tailFile);
+                channel.truncate(offset);
+            }
+            tailEnd = offset;
+        }
+        if (firstRecord > recordCount) {
+            throw new IOException("The tail in " + tailFile + " starts at record " + firstRecord
+                    + " but the blocks only hold " + recordCount);
+        }
+        final int covered = (int) Math.min(recordCount - firstRecord, records.size());
+        tail.addAll(records.subList(covered, records.size()));
+        if (firstRecord != recordCount) {
+            writeTail(tail);
+        }
+        recordCount += tail.size();
+    }
+
+    /**
+     * Appends a batch of records and syncs it to disk. Together with the tail, every full
+     * block's worth of records is deflated into a block; the rest is appended to the tail.
+     *
+     * @param records the records to append
+     * @return the number of bytes written
+     * @throws IOException if the files cannot be written
+     */
+    @Override
+    public synchronized long append(final List<EventDTO> records) throws IOException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        if (tail.size() + records.size() < BLOCK_RECORDS) {
+            return appendToTail(records);
+        }
+        final List<EventDTO> pending = new ArrayList<>(tail.size() + records.size());
+        pending.addAll(tail);
+        pending.addAll(records);
+        final int blockCount = pending.size() / BLOCK_RECORDS;
+        final int blocksBefore = blocks.size();
+        final long endBefore = end;
+        final long written = appendBlocks(pending.subList(0, blockCount * BLOCK_RECORDS));
+        final List<EventDTO> remaining = List.copyOf(pending.subList(blockCount * BLOCK_RECORDS, pending.size()));
+        try {
+            writeTail(remaining);
+        } catch (final IOException e) {
+            try (final FileChannel channel = FileChannel.open(blocksFile, StandardOpenOption.WRITE)) {
+                channel.truncate(endBefore);
+            }
+            blocks.subList(blocksBefore, blocks.size()).clear();
+            end = endBefore;
+            throw e;
+        }
+        tail.clear();
+        tail.addAll(remaining);
+        recordCount += records.size();
+        return written + tailEnd;
+    }
+
+    /**
+     * Appends records to the tail file as one chunk, keeping them in memory as well.
+     */
+    private long appendToTail(final List<EventDTO> records) throws IOException {
+        final byte[] chunk = chunk(records);
+        try (final FileChannel channel = FileChannel.open(tailFile, StandardOpenOption.WRITE)) {
+            final ByteBuffer bytes = ByteBuffer.wrap(chunk);
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, tailEnd + bytes.position());
+                }
+                channel.force(false);
+            } catch (final IOException e) {
+                channel.truncate(tailEnd);
+                throw e;
+            }
+        }
+        tailEnd += chunk.length;
+        tail.addAll(records);
+        recordCount += records.size();
+        return chunk.length;
+    }
+
+    /**
+     * Replaces the tail file with one holding the given records, which follow on from the
+     * records in blocks.
+     */
+    private void writeTail(final List<EventDTO> records) throws IOException {
+        final long firstRecord = blockedRecords();
+        final Path tmp = tailFile.resolveSibling(tailFile.getFileName() + ".tmp");
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        buffer.write(ByteBuffer.allocate(TAIL_HEADER_SIZE).putInt(TAIL_MAGIC).putInt(VERSION).putLong(firstRecord)
+                .array());
+        if (!records.isEmpty()) {
+            buffer.write(chunk(records));
+        }
+        try (final FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, tailFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        tailEnd = buffer.size();
+    }
+
+    /**
+     * Returns the number of records held in blocks, before the tail.
+     */
+    private long blockedRecords() {
+        final Block last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+        return last == null ? 0 : last.firstRecord + last.records;
+    }
+
+    /**
+     * Deflates records into blocks of {@value #BLOCK_RECORDS}, in parallel, and appends them
+     * to the block file.
+     */
+    private long appendBlocks(final List<EventDTO> records) throws IOException {
+        final int blockCount = (records.size() + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        final List<byte[]> compressed = parallel(blockCount).mapToObj(b -> compress(
+                records.subList(b * BLOCK_RECORDS, Math.min(records.size(), (b + 1) * BLOCK_RECORDS)))).toList();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final List<Block> appended = new ArrayList<>(blockCount);
+        long firstRecord = blockedRecords();
+        for (final byte[] block : compressed) {
+            buffer.write(block);
+            final ByteBuffer header = ByteBuffer.wrap(block, 0, BLOCK_HEADER_SIZE);
+            appended.add(new Block(end + buffer.size() - block.length, firstRecord, header.getInt(4),
+                    header.getInt(8), header.getInt(12), header.getInt(16)));
+            firstRecord += header.getInt(4);
+        }
+        try (final FileChannel channel = FileChannel.open(blocksFile, StandardOpenOption.WRITE)) {
+            final ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, end + bytes.position());
+                }
+                channel.force(false);
+            } catch (final IOException e) {
+                channel.truncate(end);
+                throw e;
+            }
+        }
+        blocks.addAll(appended);
+        end += buffer.size();
+        return buffer.size();
+    }
+
+    @Override
+    public List<EventDTO> readAll() throws IOException {
+        return readFrom(0);
+    }
+
+    /**
+     * Reads the records from the given record number on, inflating the blocks that hold them
+     * in parallel. Blocks before the one holding {@code firstRecord} are not read.
+     *
+     * @param firstRecord the number of the first record to read
+     * @return the records from {@code firstRecord} on
+     * @throws IOException if a block cannot be read or fails its checksum
+     */
+    @Override
+    public List<EventDTO> readFrom(final long firstRecord) throws IOException {
+        return readRange(firstRecord, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the records in a range of record numbers, inflating only the blocks that overlap it
+     * and taking the rest from the tail.
+     *
+     * @param fromRecord the number of the first record to read
+     * @param toRecord   the number after the last record to read
+     * @return the records in range
+     * @throws IOException if a block cannot be read or fails its checksum
+     */
+    @Override
+    public List<EventDTO> readRange(final long fromRecord, final long toRecord) throws IOException {
+        final List<Block> selected;
+        final List<EventDTO> tailRecords;
+        synchronized (this) {
+            final long blocked = blockedRecords();
+            final long to = Math.min(toRecord, blocked);
+            final int first = blockOf(fromRecord);
+            selected = List.copyOf(blocks.subList(first, to > fromRecord ? blockOf(to - 1) + 1 : first));
+            final int tailFrom = (int) Math.min(Math.max(0, fromRecord - blocked), tail.size());
+            final int tailTo = (int) Math.max(tailFrom, Math.min(tail.size(), toRecord - blocked));
+            tailRecords = List.copyOf(tail.subList(tailFrom, tailTo));
+        }
+        final List<List<EventDTO>> decoded = decode(selected);
+        final List<EventDTO> records = new ArrayList<>();
+        for (int b = 0; b < decoded.size(); b++) {
+            final List<EventDTO> block = decoded.get(b);
+            final long blockStart = selected.get(b).firstRecord;
+            final int from = (int) Math.min(Math.max(0, fromRecord - blockStart), block.size());
+            final int to = (int) Math.max(from, Math.min(block.size(), toRecord - blockStart));
+            records.addAll(block.subList(from, to));
+        }
+        records.addAll(tailRecords);
+        return records;
+    }
+
+    /**
+     * Inflates every block in parallel and loads the records, with the tail, into columns.
+     *
+     * @return the columns holding all stored records
+     * @throws IOException if a block cannot be read or fails its checksum
+     */
+    @Override
+    public EventTable table() throws IOException {
+        final List<Block> selected;
+        final List<EventDTO> tailRecords;
+        synchronized (this) {
+            selected = List.copyOf(blocks);
+            tailRecords = List.copyOf(tail);
+        }
+        final EventColumns columns = new EventColumns();
+        for (final List<EventDTO> block : decode(selected)) {
+            columns.addAll(block);
+        }
+        columns.addAll(tailRecords);
+        return columns;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return recordCount == 0;
+    }
+
+    @Override
+    public long sizeInBytes() throws IOException {
+        return Files.size(blocksFile) + Files.size(tailFile);
+    }
+
+    private int blockOf(final long record) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final Block block = blocks.get(mid);
+            if (record < block.firstRecord) {
+                high = mid - 1;
+            } else if (record >= block.firstRecord + block.records) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return Math.min(low, blocks.size());
+    }
+
+    private List<List<EventDTO>> decode(final List<Block> selected) throws IOException {
+        if (selected.isEmpty()) {
+            return List.of();
+        }
+        try (final FileChannel channel = FileChannel.open(blocksFile, StandardOpenOption.READ)) {
+            return parallel(selected.size()).mapToObj(b -> decode(channel, selected.get(b))).toList();
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static IntStream parallel(final int blockCount) {
+        final IntStream range = IntStream.range(0, blockCount);
+        return blockCount > 1 ? range.parallel() : range;
+    }
+
+    private List<EventDTO> decode(final FileChannel channel, final Block block) {
+        try {
+            final byte[] compressed = readFully(channel, block.offset + BLOCK_HEADER_SIZE, block.compressedLength)
+                    .array();
+            final CRC32 crc = new CRC32();
+            crc.update(compressed);
+            if ((int) crc.getValue() != block.checksum) {
+                throw new IOException("Checksum mismatch in block at offset " + block.offset + " of " + blocksFile);
+            }
+            final byte[] raw = new byte[block.rawLength];
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int inflated = 0;
+                while (inflated < raw.length && !inflater.finished()) {
+                    inflated += inflater.inflate(raw, inflated, raw.length - inflated);
+                }
+            } catch (final DataFormatException e) {
+                throw new IOException("Corrupt block at offset " + block.offset + " of " + blocksFile, e);
+            } finally {
+                inflater.end();
+            }
+            return decodeRecords(raw, block.records);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<EventDTO> decodeRecords(final byte[] raw, final int count) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        final List<EventDTO> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new EventDTO(readString(in), readString(in), readString(in), readString(in),
+                    readString(in), readString(in), in.readDouble(), LocalDate.ofEpochDay(in.readInt()),
+                    readString(in)));
+        }
+        return records;
+    }
+
+    private static byte[] encodeRecords(final List<EventDTO> records) throws IOException {
+        final ByteArrayOutputStream raw = new ByteArrayOutputStream(records.size() * 96);
+        final DataOutputStream out = new DataOutputStream(raw);
+        for (final EventDTO record : records) {
+            writeString(out, record.getSequenceNo());
+            writeString(out, record.getEmpId());
+            writeString(out, record.getFirstName());
+            writeString(out, record.getLastName());
+            writeString(out, record.getDesignation());
+            writeString(out, record.getEvent());
+            out.writeDouble(record.getValue());
+            out.writeInt((int) record.getEventDate().toEpochDay());
+            writeString(out, record.getNotes());
+        }
+        return raw.toByteArray();
+    }
+
+    /**
+     * Encodes records uncompressed as one tail chunk, returning it with its header.
+     */
+    private static byte[] chunk(final List<EventDTO> records) throws IOException {
+        final byte[] raw = encodeRecords(records);
+        final CRC32 crc = new CRC32();
+        crc.update(raw);
+        return ByteBuffer.allocate(CHUNK_HEADER_SIZE + raw.length).putInt(records.size()).putInt(raw.length)
+                .putInt((int) crc.getValue()).put(raw).array();
+    }
+
+    /**
+     * Encodes and deflates one block, returning it with its header.
+     */
+    private static byte[] compress(final List<EventDTO> records) {
+        try {
+            final byte[] raw = encodeRecords(records);
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            final ByteArrayOutputStream block = new ByteArrayOutputStream(raw.length / 4 + BLOCK_HEADER_SIZE);
+            block.write(new byte[BLOCK_HEADER_SIZE]);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                final byte[] chunk = new byte[64 * 1024];
+                while (!deflater.finished()) {
+                    block.write(chunk, 0, deflater.deflate(chunk));
+                }
+            } finally {
+                deflater.end();
+            }
+            final byte[] bytes = block.toByteArray();
+            final CRC32 crc = new CRC32();
+            crc.update(bytes, BLOCK_HEADER_SIZE, bytes.length - BLOCK_HEADER_SIZE);
+            ByteBuffer.wrap(bytes).putInt(BLOCK_MAGIC).putInt(records.size()).putInt(raw.length)
+                    .putInt(bytes.length - BLOCK_HEADER_SIZE).putInt((int) crc.getValue());
+            return bytes;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean checksumMatches(final FileChannel channel, final Block block) throws IOException {
+        final CRC32 crc = new CRC32();
+        crc.update(readFully(channel, block.offset + BLOCK_HEADER_SIZE, block.compressedLength));
+        return (int) crc.getValue() == block.checksum;
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int length)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // keep reading until the buffer is full
+        }
+        return buffer.flip();
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * An entry of the block index.
+     */
+    private static final class Block {
+        private final long offset;
+        private final long firstRecord;
+        private final int records;
+        private final int rawLength;
+        private final int compressedLength;
+        private final int checksum;
+
+        Block(final long offset, final long firstRecord, final int records, final int rawLength,
+              final int compressedLength, final int checksum) {
+            this.offset = offset;
+            this.firstRecord = firstRecord;
+            this.records = records;
+            this.rawLength = rawLength;
+            this.compressedLength = compressedLength;
+            this.checksum = checksum;
+        }
+    }
+}
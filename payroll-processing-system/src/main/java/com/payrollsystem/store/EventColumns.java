@@ -0,0 +1,342 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Column-oriented, primitive-backed storage for events.
+ * <p>
+ * Amounts are kept in a {@code double[]}, dates as epoch days in an {@code int[]}, and the
+ * repeated employee id, name, designation and event type strings as dictionary codes, so a
+ * report scan walks a few primitive arrays instead of an object graph. Sequence numbers and
+ * notes are mostly unique and are kept as plain strings. Rows are only ever appended, and
+ * the arrays are replaced rather than modified when they grow, so a {@link #head(int) view}
+ * of the rows so far stays consistent while further rows are added.
+ */
+public class EventColumns implements EventTable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NULL_LENGTH = -1;
+
+    private final StringDictionary empIds;
+    private final StringDictionary names;
+    private final StringDictionary designations;
+    private final StringDictionary eventTypes;
+    private final boolean readOnly;
+    private String[] sequenceNos = new String[INITIAL_CAPACITY];
+    private String[] notes = new String[INITIAL_CAPACITY];
+    private int[] empIdCodes = new int[INITIAL_CAPACITY];
+    private int[] firstNameCodes = new int[INITIAL_CAPACITY];
+    private int[] lastNameCodes = new int[INITIAL_CAPACITY];
+    private int[] designationCodes = new int[INITIAL_CAPACITY];
+    private int[] eventTypeCodes = new int[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private int size;
+    private long stringBytes;
+
+    public EventColumns() {
+        empIds = new StringDictionary();
+        names = new StringDictionary();
+        designations = new StringDictionary();
+        eventTypes = new StringDictionary();
+        readOnly = false;
+    }
+
+    private EventColumns(final EventColumns source, final int rows) {
+        empIds = source.empIds.view();
+        names = source.names.view();
+        designations = source.designations.view();
+        eventTypes = source.eventTypes.view();
+        readOnly = true;
+        sequenceNos = source.sequenceNos;
+        notes = source.notes;
+        empIdCodes = source.empIdCodes;
+        firstNameCodes = source.firstNameCodes;
+        lastNameCodes = source.lastNameCodes;
+        designationCodes = source.designationCodes;
+        eventTypeCodes = source.eventTypeCodes;
+        epochDays = source.epochDays;
+        values = source.values;
+        size = rows;
+        stringBytes = source.stringBytes;
+    }
+
+    /**
+     * Appends events as new rows.
+     *
+     * @param records the events to append
+     */
+    public void addAll(final List<EventDTO> records) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Cannot add to a read-only view");
+        }
+        ensureCapacity(size + records.size());
+        for (final EventDTO record : records) {
+            sequenceNos[size] = record.getSequenceNo();
+            notes[size] = record.getNotes();
+            empIdCodes[size] = empIds.encode(record.getEmpId());
+            firstNameCodes[size] = names.encode(record.getFirstName());
+            lastNameCodes[size] = names.encode(record.getLastName());
+            designationCodes[size] = designations.encode(record.getDesignation());
+            eventTypeCodes[size] = eventTypes.encode(record.getEvent());
+            epochDays[size] = (int) record.getEventDate().toEpochDay();
+            values[size] = record.getValue();
+            stringBytes += stringBytes(record.getSequenceNo()) + stringBytes(record.getNotes());
+            size++;
+        }
+    }
+
+    @Override
+    public String sequenceNo(final int row) {
+        return sequenceNos[row];
+    }
+
+    @Override
+    public EventDTO toEvent(final int row) {
+        return new EventDTO(sequenceNos[row], empIds.decode(empIdCodes[row]),
+                names.decode(firstNameCodes[row]), names.decode(lastNameCodes[row]),
+                designations.decode(designationCodes[row]), eventTypes.decode(eventTypeCodes[row]),
+                values[row], LocalDate.ofEpochDay(epochDays[row]), notes[row]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a read-only view of the first rows sharing these columns' arrays, which later
+     * appends never write below the current size.
+     *
+     * @param rows the number of rows to expose, at most {@link #size()}
+     * @return the view
+     */
+    @Override
+    public EventColumns head(final int rows) {
+        return new EventColumns(this, rows);
+    }
+
+    @Override
+    public int empIdCode(final int row) {
+        return empIdCodes[row];
+    }
+
+    @Override
+    public int designationCode(final int row) {
+        return designationCodes[row];
+    }
+
+    @Override
+    public int eventTypeCode(final int row) {
+        return eventTypeCodes[row];
+    }
+
+    @Override
+    public int epochDay(final int row) {
+        return epochDays[row];
+    }
+
+    @Override
+    public double value(final int row) {
+        return values[row];
+    }
+
+    @Override
+    public StringDictionary empIds() {
+        return empIds;
+    }
+
+    @Override
+    public StringDictionary designations() {
+        return designations;
+    }
+
+    @Override
+    public StringDictionary eventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Estimates the heap held by the columns and their dictionaries.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        final long arrayBytes = (long) sequenceNos.length * (2 * 4 + 6 * 4 + 8);
+        return arrayBytes + stringBytes + empIds.estimatedBytes() + names.estimatedBytes()
+                + designations.estimatedBytes() + eventTypes.estimatedBytes();
+    }
+
+    /**
+     * Writes the dictionaries and the first {@code rows} rows in a compact binary form.
+     *
+     * @param out  the output to write to
+     * @param rows the number of rows to write
+     * @throws IOException if the output cannot be written
+     */
+    void writeTo(final DataOutput out, final int rows) throws IOException {
+        for (final StringDictionary dictionary : List.of(empIds, names, designations, eventTypes)) {
+            out.writeInt(dictionary.size());
+            for (int code = 0; code < dictionary.size(); code++) {
+                writeString(out, dictionary.decode(code));
+            }
+        }
+        out.writeInt(rows);
+        for (int row = 0; row < rows; row++) {
+            writeString(out, sequenceNos[row]);
+            writeString(out, notes[row]);
+            out.writeInt(empIdCodes[row]);
+            out.writeInt(firstNameCodes[row]);
+            out.writeInt(lastNameCodes[row]);
+            out.writeInt(designationCodes[row]);
+            out.writeInt(eventTypeCodes[row]);
+            out.writeInt(epochDays[row]);
+            out.writeDouble(values[row]);
+        }
+    }
+
+    /**
+     * Reads columns written by {@link #writeTo}.
+     *
+     * @param in the input to read from
+     * @return the columns
+     * @throws IOException if the input cannot be read
+     */
+    static EventColumns readFrom(final DataInput in) throws IOException {
+        final EventColumns columns = new EventColumns();
+        for (final StringDictionary dictionary : List.of(columns.empIds, columns.names, columns.designations,
+                columns.eventTypes)) {
+            final int size = in.readInt();
+            for (int code = 0; code < size; code++) {
+                dictionary.encode(readString(in));
+            }
+        }
+        final int rows = in.readInt();
+        columns.ensureCapacity(rows);
+        for (int row = 0; row < rows; row++) {
+            columns.sequenceNos[row] = readString(in);
+            columns.notes[row] = readString(in);
+            columns.empIdCodes[row] = in.readInt();
+            columns.firstNameCodes[row] = in.readInt();
+            columns.lastNameCodes[row] = in.readInt();
+            columns.designationCodes[row] = in.readInt();
+            columns.eventTypeCodes[row] = in.readInt();
+            columns.epochDays[row] = in.readInt();
+            columns.values[row] = in.readDouble();
+            columns.stringBytes += stringBytes(columns.sequenceNos[row]) + stringBytes(columns.notes[row]);
+        }
+        columns.size = rows;
+        return columns;
+    }
+
+    /**
+     * Reads the dictionaries written by {@link #writeTo} as plain arrays, leaving the input at
+     * the row count: employee ids, names, designations, event types.
+     *
+     * @param in the input to read from
+     * @return the values of each dictionary, indexed by code
+     * @throws IOException if the input cannot be read
+     */
+    static String[][] readDictionaries(final DataInput in) throws IOException {
+        final String[][] dictionaries = new String[4][];
+        for (int d = 0; d < dictionaries.length; d++) {
+            dictionaries[d] = new String[in.readInt()];
+            for (int code = 0; code < dictionaries[d].length; code++) {
+                dictionaries[d][code] = readString(in);
+            }
+        }
+        return dictionaries;
+    }
+
+    /**
+     * Reads a single row written by {@link #writeTo} back into an event.
+     *
+     * @param in           the input positioned at the row
+     * @param dictionaries the dictionaries as read by {@link #readDictionaries}
+     * @return the event
+     * @throws IOException if the input cannot be read
+     */
+    static EventDTO readRow(final DataInput in, final String[][] dictionaries) throws IOException {
+        final String sequenceNo = readString(in);
+        final String note = readString(in);
+        final String empId = dictionaries[0][in.readInt()];
+        final String firstName = dictionaries[1][in.readInt()];
+        final String lastName = dictionaries[1][in.readInt()];
+        final String designation = dictionaries[2][in.readInt()];
+        final String eventType = dictionaries[3][in.readInt()];
+        final LocalDate eventDate = LocalDate.ofEpochDay(in.readInt());
+        return new EventDTO(sequenceNo, empId, firstName, lastName, designation, eventType, in.readDouble(),
+                eventDate, note);
+    }
+
+    /**
+     * Skips a single row written by {@link #writeTo} without decoding it.
+     *
+     * @param in the input positioned at the row
+     * @throws IOException if the input cannot be read
+     */
+    static void skipRow(final DataInput in) throws IOException {
+        for (int i = 0; i < 2; i++) {
+            final int length = in.readInt();
+            if (length != NULL_LENGTH) {
+                skipFully(in, length);
+            }
+        }
+        skipFully(in, 6 * Integer.BYTES + Double.BYTES);
+    }
+
+    private static void skipFully(final DataInput in, final int length) throws IOException {
+        if (in.skipBytes(length) != length) {
+            throw new EOFException();
+        }
+    }
+
+    private static void writeString(final DataOutput out, final String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long stringBytes(final String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    private void ensureCapacity(final int required) {
+        if (required <= sequenceNos.length) {
+            return;
+        }
+        final int capacity = Math.max(required, sequenceNos.length * 2);
+        sequenceNos = Arrays.copyOf(sequenceNos, capacity);
+        notes = Arrays.copyOf(notes, capacity);
+        empIdCodes = Arrays.copyOf(empIdCodes, capacity);
+        firstNameCodes = Arrays.copyOf(firstNameCodes, capacity);
+        lastNameCodes = Arrays.copyOf(lastNameCodes, capacity);
+        designationCodes = Arrays.copyOf(designationCodes, capacity);
+        eventTypeCodes = Arrays.copyOf(eventTypeCodes, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -0,0 +1,195 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Secondary indexes from event type, employee id and year-month to the rows holding them.
+ * <p>
+ * Rows are appended in commit order, so every posting list is sorted ascending and a
+ * selective query visits only its matching rows. The year-month postings are the month
+ * partitions of the store: a date-range query selects just the months in range. Keys are the decoded values rather than
+ * dictionary codes, which keeps the index valid for both the resident columns and a table
+ * read back from storage.
+ * <p>
+ * A {@link #view()} for concurrent readers holds {@link PersistentMap}s of posting views. The
+ * index keeps them up to date for the keys each batch touches, so publishing a view costs the
+ * keys a batch touched rather than every key indexed.
+ */
+public class EventIndex {
+
+    private final Postings<String> byEventType;
+    private final Postings<String> byEmpId;
+    private final Postings<YearMonth> byYearMonth;
+    private YearMonth firstMonth;
+    private YearMonth lastMonth;
+    private long estimatedBytes;
+
+    public EventIndex() {
+        this(new Postings<>(), new Postings<>(), new Postings<>());
+    }
+
+    private EventIndex(final Postings<String> byEventType, final Postings<String> byEmpId,
+                       final Postings<YearMonth> byYearMonth) {
+        this.byEventType = byEventType;
+        this.byEmpId = byEmpId;
+        this.byYearMonth = byYearMonth;
+    }
+
+    /**
+     * Indexes a batch of records stored from the given row on.
+     *
+     * @param firstRow the row number of the first record
+     * @param records  the records to index
+     */
+    public void addAll(final int firstRow, final List<EventDTO> records) {
+        int row = firstRow;
+        for (final EventDTO record : records) {
+            byEventType.add(record.getEvent(), row);
+            byEmpId.add(record.getEmpId(), row);
+            addMonth(YearMonth.from(record.getEventDate()), row);
+            row++;
+        }
+        estimatedBytes += records.size() * 3L * Integer.BYTES;
+    }
+
+    /**
+     * Indexes the rows of a table from the given row on.
+     *
+     * @param table   the table holding the rows
+     * @param fromRow the first row to index
+     */
+    public void addRows(final EventTable table, final int fromRow) {
+        for (int row = fromRow; row < table.size(); row++) {
+            byEventType.add(table.eventTypes().decode(table.eventTypeCode(row)), row);
+            byEmpId.add(table.empIds().decode(table.empIdCode(row)), row);
+            addMonth(YearMonth.from(LocalDate.ofEpochDay(table.epochDay(row))), row);
+        }
+        estimatedBytes += Math.max(0, table.size() - fromRow) * 3L * Integer.BYTES;
+    }
+
+    /**
+     * Returns a read-only copy of the index for concurrent readers. Its postings are
+     * {@link IntList#view() views} as of now, so rows indexed here afterwards never show
+     * through the copy.
+     *
+     * @return the read-only copy
+     */
+    public EventIndex view() {
+        final EventIndex view = new EventIndex(byEventType.view(), byEmpId.view(), byYearMonth.view());
+        view.firstMonth = firstMonth;
+        view.lastMonth = lastMonth;
+        view.estimatedBytes = estimatedBytes;
+        return view;
+    }
+
+    public IntList rowsOfEventType(final String eventType) {
+        return byEventType.rows(eventType);
+    }
+
+    public IntList rowsOfEmployee(final String empId) {
+        return byEmpId.rows(empId);
+    }
+
+    public IntList rowsInMonth(final YearMonth yearMonth) {
+        return byYearMonth.rows(yearMonth);
+    }
+
+    /**
+     * Returns the row postings of every month in range, oldest month first. Months outside
+     * the range are never visited.
+     *
+     * @param range the months to select
+     * @return the postings per month in range
+     */
+    public Collection<IntList> rowsInRange(final PeriodRange range) {
+        return monthsInRange(range).values();
+    }
+
+    /**
+     * Returns the row postings of every month in range keyed by month, oldest month first.
+     * Rows within a month are in ascending order.
+     *
+     * @param range the months to select
+     * @return the postings per month in range
+     */
+    public NavigableMap<YearMonth, IntList> monthsInRange(final PeriodRange range) {
+        return range.select(byYearMonth.published(), firstMonth, lastMonth);
+    }
+
+    /**
+     * Estimates the heap held by the row postings, ignoring the slack in growing lists.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return estimatedBytes + (byEventType.size() + byEmpId.size() + byYearMonth.size()) * 96L;
+    }
+
+    private void addMonth(final YearMonth yearMonth, final int row) {
+        byYearMonth.add(yearMonth, row);
+        firstMonth = firstMonth == null || yearMonth.isBefore(firstMonth) ? yearMonth : firstMonth;
+        lastMonth = lastMonth == null || yearMonth.isAfter(lastMonth) ? yearMonth : lastMonth;
+    }
+
+    /**
+     * Postings of one key type. The growing lists are only reached by the writer; readers get
+     * the published map of their views, which is brought up to date for the keys added to
+     * since the last view was taken.
+     */
+    private static final class Postings<K> {
+        private final Map<K, IntList> rows;
+        private final Set<K> changed;
+        private PersistentMap<K, IntList> published = PersistentMap.empty();
+
+        Postings() {
+            rows = new HashMap<>();
+            changed = new LinkedHashSet<>();
+        }
+
+        private Postings(final PersistentMap<K, IntList> published) {
+            rows = null;
+            changed = null;
+            this.published = published;
+        }
+
+        void add(final K key, final int row) {
+            rows.computeIfAbsent(key, k -> new IntList()).add(row);
+            changed.add(key);
+        }
+
+        IntList rows(final K key) {
+            final IntList postings = rows == null ? published.get(key) : rows.get(key);
+            return postings == null ? IntList.empty() : postings;
+        }
+
+        int size() {
+            return rows == null ? published.size() : rows.size();
+        }
+
+        PersistentMap<K, IntList> published() {
+            if (rows != null && !changed.isEmpty()) {
+                final PersistentMap.Edit edit = new PersistentMap.Edit();
+                final PersistentMap<K, IntList> next = published.editable(edit);
+                changed.forEach(key -> next.put(key, rows.get(key).view()));
+                edit.close();
+                published = next;
+                changed.clear();
+            }
+            return published;
+        }
+
+        Postings<K> view() {
+            return new Postings<>(published());
+        }
+    }
+}
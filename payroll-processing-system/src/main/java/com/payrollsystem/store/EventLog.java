@@ -0,0 +1,358 @@
+package com.payrollsystem.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.util.ObjectMapperUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Append-only event log made of rolling, newline-delimited JSON segment files.
+ * <p>
+ * Each upload appends only its own batch to the active segment, so ingest cost is
+ * proportional to the batch size rather than to the total history. A new segment is
+ * started once the active one grows past the configured size.
+ * <p>
+ * Once a snapshot covers the records of older segments, {@link #compactBefore(long)} deletes
+ * those segments. The first retained segment and record number are kept in a small
+ * {@code compacted} manifest, written before any segment is deleted.
+ */
+public class EventLog implements EventStorage {
+
+    private static final Logger LOGGER = LogManager.getLogger(EventLog.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final String COMPACTED_MANIFEST = "compacted";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final ObjectMapper mapper = ObjectMapperUtil.getMapper();
+    private final NavigableMap<Integer, Long> segmentRecords = new TreeMap<>();
+    private int activeSegmentNo;
+    private long firstRecord;
+
+    /**
+     * Creates an event log rooted at the given directory.
+     *
+     * @param directory       the directory holding the segment files
+     * @param maxSegmentBytes the size after which a new segment is started
+     */
+    public EventLog(final Path directory, final long maxSegmentBytes) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    /**
+     * Creates the log directory if needed and positions the log on its latest segment.
+     * A torn trailing line left in that segment by an interrupted append is cut off, so
+     * the next append starts on a fresh line, and segments left over from an interrupted
+     * compaction are deleted.
+     *
+     * @throws IOException if the directory cannot be created or listed
+     */
+    @Override
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        int firstSegmentNo = 1;
+        firstRecord = 0;
+        final Path manifest = directory.resolve(COMPACTED_MANIFEST);
+        if (Files.exists(manifest)) {
+            final String[] fields = Files.readString(manifest, StandardCharsets.UTF_8).trim().split(" ");
+            firstSegmentNo = Integer.parseInt(fields[0]);
+            firstRecord = Long.parseLong(fields[1]);
+        }
+        segmentRecords.clear();
+        for (final Path segment : listSegments()) {
+            if (segmentNo(segment) < firstSegmentNo) {
+                Files.delete(segment);
+            }
+        }
+        final List<Path> segments = listSegments();
+        activeSegmentNo = segments.isEmpty() ? firstSegmentNo : segmentNo(segments.get(segments.size() - 1));
+        if (!segments.isEmpty()) {
+            truncateTornLine(segments.get(segments.size() - 1));
+        }
+        for (final Path segment : segments) {
+            segmentRecords.put(segmentNo(segment), countLines(segment));
+        }
+        LOGGER.info("Opened event log at {} with {} segment(s), starting at record {}", directory, segments.size(),
+                firstRecord);
+    }
+
+    /**
+     * Appends a batch of records to the active segment and syncs it to disk. A failed append
+     * is cut off again, so the next one does not start on the end of a torn line.
+     *
+     * @param records the records to append
+     * @return the number of bytes written
+     * @throws IOException if the segment cannot be written
+     */
+    @Override
+    public synchronized long append(final List<EventDTO> records) throws IOException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(records.size() * 256);
+        for (final EventDTO record : records) {
+            buffer.write(mapper.writeValueAsBytes(record));
+            buffer.write('\n');
+        }
+        Path segment = segmentPath(activeSegmentNo);
+        if (Files.exists(segment) && Files.size(segment) >= maxSegmentBytes) {
+            activeSegmentNo++;
+            segment = segmentPath(activeSegmentNo);
+            LOGGER.info("Rolled event log over to segment {}", segment.getFileName());
+        }
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final long end = channel.size();
+            final ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            try {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (final IOException e) {
+                channel.truncate(end);
+                throw e;
+            }
+        }
+        segmentRecords.merge(activeSegmentNo, (long) records.size(), Long::sum);
+        LOGGER.debug("Appended {} records to {}", records.size(), segment.getFileName());
+        return buffer.size();
+    }
+
+    /**
+     * Reads every retained record in the log, oldest segment first.
+     * A truncated trailing line, as left behind by an interrupted append, is skipped.
+     *
+     * @return the list of all retained records
+     * @throws IOException if a segment cannot be read
+     */
+    @Override
+    public List<EventDTO> readAll() throws IOException {
+        return readFrom(0);
+    }
+
+    /**
+     * Reads the records from the given record number on.
+     *
+     * @param fromRecord the number of the first record to read
+     * @return the records from {@code fromRecord} on
+     * @throws IOException if a segment cannot be read
+     * @see #readRange(long, long)
+     */
+    @Override
+    public List<EventDTO> readFrom(final long fromRecord) throws IOException {
+        return readRange(fromRecord, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads the records in a range of record numbers. Whole segments outside the range are
+     * skipped without being read, earlier lines of the first segment read are skipped without
+     * being parsed, and reading stops at the end of the range.
+     * <p>
+     * Every line a segment counts is a record, and its position is its record number, so only
+     * the lines counted when the read starts are read, leaving out any append still being
+     * written. A counted line that cannot be parsed fails the read rather than being skipped,
+     * which would move every later record to the wrong number.
+     *
+     * @param fromRecord the number of the first record to read
+     * @param toRecord   the number after the last record to read
+     * @return the records in range
+     * @throws IOException if a segment cannot be read or holds an unreadable record
+     */
+    @Override
+    public List<EventDTO> readRange(final long fromRecord, final long toRecord) throws IOException {
+        final Map<Integer, Long> counts;
+        long segmentStart;
+        synchronized (this) {
+            counts = new HashMap<>(segmentRecords);
+            segmentStart = firstRecord;
+        }
+        final List<EventDTO> records = new ArrayList<>();
+        for (final Path segment : listSegments()) {
+            final Long count = counts.get(segmentNo(segment));
+            if (count == null || segmentStart >= toRecord) {
+                break;
+            }
+            final long start = segmentStart;
+            segmentStart += count;
+            if (segmentStart <= fromRecord) {
+                continue;
+            }
+            try (final BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                for (long lineNo = 0; lineNo < count && (line = reader.readLine()) != null; lineNo++) {
+                    final long record = start + lineNo;
+                    if (record < fromRecord) {
+                        continue;
+                    }
+                    if (record >= toRecord) {
+                        break;
+                    }
+                    try {
+                        records.add(mapper.readValue(line, EventDTO.class));
+                    } catch (final IOException e) {
+                        throw new IOException("Unreadable record on line " + (lineNo + 1) + " of "
+                                + segment.getFileName() + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Loads every record into columns; the text format cannot be scanned in place.
+     *
+     * @return the columns holding all logged records
+     * @throws IOException if a segment cannot be read
+     */
+    @Override
+    public EventTable table() throws IOException {
+        final EventColumns columns = new EventColumns();
+        columns.addAll(readAll());
+        return columns;
+    }
+
+    @Override
+    public boolean isEmpty() throws IOException {
+        return listSegments().isEmpty() && firstRecord() == 0;
+    }
+
+    @Override
+    public synchronized long firstRecord() {
+        return firstRecord;
+    }
+
+    /**
+     * Deletes the segments, other than the active one, whose records all precede the given
+     * record number.
+     *
+     * @param record the number of the first record that must be kept
+     * @return the number of the first retained record
+     * @throws IOException if the manifest cannot be written or a segment cannot be deleted
+     */
+    @Override
+    public synchronized long compactBefore(final long record) throws IOException {
+        final List<Integer> compacted = new ArrayList<>();
+        long retainedFrom = firstRecord;
+        for (final Map.Entry<Integer, Long> segment : segmentRecords.entrySet()) {
+            if (segment.getKey() == activeSegmentNo || retainedFrom + segment.getValue() > record) {
+                break;
+            }
+            compacted.add(segment.getKey());
+            retainedFrom += segment.getValue();
+        }
+        if (compacted.isEmpty()) {
+            return firstRecord;
+        }
+        final int firstRetainedSegment = segmentRecords.higherKey(compacted.get(compacted.size() - 1));
+        final Path manifest = directory.resolve(COMPACTED_MANIFEST);
+        final Path tmp = directory.resolve(COMPACTED_MANIFEST + ".tmp");
+        Files.writeString(tmp, firstRetainedSegment + " " + retainedFrom, StandardCharsets.UTF_8);
+        Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (final int segmentNo : compacted) {
+            Files.deleteIfExists(segmentPath(segmentNo));
+            segmentRecords.remove(segmentNo);
+        }
+        firstRecord = retainedFrom;
+        LOGGER.info("Compacted {} segment(s) of the event log, now starting at record {}", compacted.size(),
+                firstRecord);
+        return firstRecord;
+    }
+
+    @Override
+    public long sizeInBytes() throws IOException {
+        long size = 0;
+        for (final Path segment : listSegments()) {
+            size += Files.size(segment);
+        }
+        return size;
+    }
+
+    private static long countLines(final Path segment) throws IOException {
+        long lines = 0;
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            final ByteBuffer chunk = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(chunk.clear()) > 0) {
+                for (int i = 0; i < chunk.position(); i++) {
+                    if (chunk.get(i) == '\n') {
+                        lines++;
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static void truncateTornLine(final Path segment) throws IOException {
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer chunk = ByteBuffer.allocate(8192);
+            long end = channel.size();
+            while (end > 0) {
+                final long start = Math.max(0, end - chunk.capacity());
+                chunk.clear().limit((int) (end - start));
+                while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) > 0) {
+                    // keep reading until the chunk is full
+                }
+                for (int i = chunk.position() - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        final long validSize = start + i + 1;
+                        if (validSize < channel.size()) {
+                            LOGGER.warn("Truncating {} torn byte(s) at the end of {}", channel.size() - validSize,
+                                    segment.getFileName());
+                            channel.truncate(validSize);
+                        }
+                        return;
+                    }
+                }
+                end = start;
+            }
+            if (channel.size() > 0) {
+                LOGGER.warn("Truncating torn segment {}", segment.getFileName());
+                channel.truncate(0);
+            }
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(final int segmentNo) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segmentNo, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentNo(final Path segment) {
+        final String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,291 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary image of the resident {@link EventColumns}, so a restart can load the events it
+ * covers with bulk primitive reads instead of replaying and parsing the whole log.
+ * <p>
+ * The file holds a header, the dictionaries and the column values of the first
+ * {@link #getEventCount()} events, followed by a CRC-32C of everything before it. It is
+ * written to a temporary file, synced, read back to check the CRC and only then moved into
+ * place, so neither a crash nor a bad write while snapshotting replaces the previous snapshot.
+ * Snapshots are read back the same way, and one that fails the check is ignored.
+ */
+public final class EventSnapshot {
+
+    private static final Logger LOGGER = LogManager.getLogger(EventSnapshot.class);
+    private static final int MAGIC = 0x50534e50;
+    private static final int VERSION = 2;
+    private static final int UNCHECKED_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final EventColumns columns;
+
+    private EventSnapshot(final EventColumns columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Writes a snapshot of the first rows of the given columns, replacing the previous one
+     * once the new file has been read back and its CRC matches.
+     *
+     * @param file    the snapshot file to replace
+     * @param columns the columns to snapshot
+     * @param rows    the number of rows to include
+     * @throws IOException if the snapshot cannot be written or does not read back intact
+     */
+    public static void write(final Path file, final EventColumns columns, final int rows) throws IOException {
+        final Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel),
+                    BUFFER_SIZE);
+            final CheckedOutputStream checked = new CheckedOutputStream(stream, new CRC32C());
+            final DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            columns.writeTo(out, rows);
+            out.flush();
+            new DataOutputStream(stream).writeInt((int) checked.getChecksum().getValue());
+            stream.flush();
+            channel.force(false);
+        }
+        verify(tmp);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot if one exists.
+     *
+     * @param file the snapshot file
+     * @return the snapshot, or null if there is none or it cannot be read
+     */
+    public static EventSnapshot read(final Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (final InputStream stream = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            final CheckedInputStream checked = new CheckedInputStream(stream, new CRC32C());
+            final DataInputStream in = new DataInputStream(checked);
+            final int version = readVersion(in);
+            if (version < 0) {
+                LOGGER.error("Ignoring snapshot {} in an unsupported format", file);
+                return null;
+            }
+            final EventColumns columns = EventColumns.readFrom(in);
+            checkCrc(file, version, checked, stream);
+            return new EventSnapshot(columns);
+        } catch (final IOException e) {
+            LOGGER.error("Ignoring unreadable snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Opens the rows of a snapshot for reading a range at a time.
+     *
+     * @param file the snapshot file
+     * @return the rows of the snapshot
+     * @throws IOException if the snapshot cannot be read or is in an unsupported format
+     */
+    static Rows openRows(final Path file) throws IOException {
+        try (final CountingInputStream counting = new CountingInputStream(new BufferedInputStream(
+                Files.newInputStream(file), BUFFER_SIZE))) {
+            final CheckedInputStream checked = new CheckedInputStream(counting, new CRC32C());
+            final DataInputStream in = new DataInputStream(checked);
+            final int version = readVersion(in);
+            if (version < 0) {
+                throw new IOException("Snapshot " + file + " is in an unsupported format");
+            }
+            final String[][] dictionaries = EventColumns.readDictionaries(in);
+            final int rows = in.readInt();
+            final long[] marks = new long[(rows + Rows.ROWS_PER_MARK - 1) / Rows.ROWS_PER_MARK + 1];
+            for (int row = 0; row < rows; row++) {
+                if (row % Rows.ROWS_PER_MARK == 0) {
+                    marks[row / Rows.ROWS_PER_MARK] = counting.count;
+                }
+                EventColumns.skipRow(in);
+            }
+            marks[marks.length - 1] = counting.count;
+            checkCrc(file, version, checked, counting);
+            return new Rows(file, Files.size(file), dictionaries, marks, rows);
+        }
+    }
+
+    /**
+     * Reads a snapshot file through to its CRC, checking that it matches.
+     */
+    private static void verify(final Path file) throws IOException {
+        try (final InputStream stream = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            final CheckedInputStream checked = new CheckedInputStream(stream, new CRC32C());
+            final DataInputStream in = new DataInputStream(checked);
+            final int version = readVersion(in);
+            if (version != VERSION) {
+                throw new IOException("Snapshot " + file + " was written with an unexpected header");
+            }
+            EventColumns.readDictionaries(in);
+            final int rows = in.readInt();
+            for (int row = 0; row < rows; row++) {
+                EventColumns.skipRow(in);
+            }
+            checkCrc(file, version, checked, stream);
+        }
+    }
+
+    /**
+     * Reads the header of a snapshot.
+     *
+     * @return the format version, or -1 if the format is not supported
+     */
+    private static int readVersion(final DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            return -1;
+        }
+        final int version = in.readInt();
+        return version == VERSION || version == UNCHECKED_VERSION ? version : -1;
+    }
+
+    /**
+     * Compares the CRC of the bytes read so far with the one stored after them. Snapshots
+     * written before the CRC was added have nothing to compare.
+     */
+    private static void checkCrc(final Path file, final int version, final CheckedInputStream checked,
+                                 final InputStream trailer) throws IOException {
+        if (version == UNCHECKED_VERSION) {
+            return;
+        }
+        final int expected = new DataInputStream(trailer).readInt();
+        if (expected != (int) checked.getChecksum().getValue() || trailer.read() >= 0) {
+            throw new IOException("Snapshot " + file + " does not match its CRC");
+        }
+    }
+
+    public EventColumns getColumns() {
+        return columns;
+    }
+
+    public long getEventCount() {
+        return columns.size();
+    }
+
+    /**
+     * The rows of a snapshot, read a range at a time rather than all at once for stores that
+     * no longer hold their events in memory. Opening them reads the dictionaries and notes the
+     * file offset of every {@value #ROWS_PER_MARK}th row, so a range is read from the mark
+     * before it instead of from the start of the file.
+     */
+    static final class Rows {
+        private static final int ROWS_PER_MARK = 4096;
+
+        private final Path file;
+        private final long fileSize;
+        private final String[][] dictionaries;
+        private final long[] marks;
+        private final int size;
+
+        private Rows(final Path file, final long fileSize, final String[][] dictionaries, final long[] marks,
+                     final int size) {
+            this.file = file;
+            this.fileSize = fileSize;
+            this.dictionaries = dictionaries;
+            this.marks = marks;
+            this.size = size;
+        }
+
+        /**
+         * Reads the events of a range of rows.
+         *
+         * @param fromRow the first row to read
+         * @param toRow   the row after the last one to read
+         * @return the events in range
+         * @throws IOException if the snapshot cannot be read or was replaced since it was opened
+         */
+        List<EventDTO> read(final int fromRow, final int toRow) throws IOException {
+            final int to = Math.min(toRow, size);
+            if (fromRow >= to) {
+                return List.of();
+            }
+            final int firstMark = fromRow / ROWS_PER_MARK;
+            final long start = marks[firstMark];
+            final long end = marks[(to + ROWS_PER_MARK - 1) / ROWS_PER_MARK];
+            final ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+            try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() != fileSize) {
+                    throw new IOException("Snapshot " + file + " was replaced while its rows were being read");
+                }
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes, start + bytes.position()) < 0) {
+                        throw new EOFException("Snapshot " + file + " ends before row " + to);
+                    }
+                }
+            }
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.array()));
+            for (int row = firstMark * ROWS_PER_MARK; row < fromRow; row++) {
+                EventColumns.skipRow(in);
+            }
+            final List<EventDTO> records = new ArrayList<>(to - fromRow);
+            for (int row = fromRow; row < to; row++) {
+                records.add(EventColumns.readRow(in, dictionaries));
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Counts the bytes read through it, to find the file offsets of rows.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            count += b < 0 ? 0 : 1;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            count += Math.max(read, 0);
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
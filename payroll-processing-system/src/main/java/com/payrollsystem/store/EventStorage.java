@@ -0,0 +1,132 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Durable, append-only storage for committed events.
+ */
+public interface EventStorage {
+
+    /**
+     * Prepares the storage for reads and appends, creating it if needed.
+     *
+     * @throws IOException if the storage cannot be opened
+     */
+    void open() throws IOException;
+
+    /**
+     * Appends a batch of records and syncs it to disk before returning, so an appended
+     * batch survives a crash.
+     *
+     * @param records the records to append
+     * @return the number of bytes written
+     * @throws IOException if the storage cannot be written
+     */
+    long append(List<EventDTO> records) throws IOException;
+
+    /**
+     * Reads every stored record, oldest first.
+     *
+     * @return the list of all stored records
+     * @throws IOException if the storage cannot be read
+     */
+    List<EventDTO> readAll() throws IOException;
+
+    /**
+     * Reads the stored records from the given record number on, oldest first. Records are
+     * numbered from zero over the life of the storage, including any compacted away.
+     *
+     * @param firstRecord the number of the first record to read, at least {@link #firstRecord()}
+     * @return the stored records from {@code firstRecord} on
+     * @throws IOException if the storage cannot be read
+     */
+    default List<EventDTO> readFrom(final long firstRecord) throws IOException {
+        final List<EventDTO> records = readAll();
+        final long skip = firstRecord - firstRecord();
+        return records.subList((int) Math.min(Math.max(skip, 0), records.size()), records.size());
+    }
+
+    /**
+     * Reads the stored records in a range of record numbers, oldest first. Stores that no
+     * longer hold their events in memory page through the storage with this, so implementations
+     * should read little beyond the range; by default the records from {@code fromRecord} on
+     * are read and cut short.
+     *
+     * @param fromRecord the number of the first record to read, at least {@link #firstRecord()}
+     * @param toRecord   the number after the last record to read
+     * @return the stored records in range
+     * @throws IOException if the storage cannot be read
+     */
+    default List<EventDTO> readRange(final long fromRecord, final long toRecord) throws IOException {
+        final List<EventDTO> records = readFrom(fromRecord);
+        return records.subList(0, (int) Math.min(Math.max(toRecord - fromRecord, 0), records.size()));
+    }
+
+    /**
+     * Returns the number of the oldest record still held, which is the number of records
+     * dropped by {@link #compactBefore(long)}.
+     *
+     * @return the number of the first retained record
+     * @throws IOException if the storage cannot be inspected
+     */
+    default long firstRecord() throws IOException {
+        return 0;
+    }
+
+    /**
+     * Drops stored records older than the given record number once a snapshot covers them.
+     * Storage is only dropped in whole units, so fewer records may be dropped than asked for;
+     * by default nothing is.
+     *
+     * @param record the number of the first record that must be kept
+     * @return the number of the first retained record after compaction
+     * @throws IOException if the storage cannot be compacted
+     */
+    default long compactBefore(final long record) throws IOException {
+        return firstRecord();
+    }
+
+    /**
+     * Returns a table over every stored record for report scans.
+     *
+     * @return a table over the stored records
+     * @throws IOException if the storage cannot be read
+     */
+    EventTable table() throws IOException;
+
+    /**
+     * Tells whether anything has been stored yet.
+     *
+     * @return true if the storage holds no records
+     * @throws IOException if the storage cannot be inspected
+     */
+    boolean isEmpty() throws IOException;
+
+    /**
+     * Measures the space the stored records take on disk.
+     *
+     * @return the total size of the storage files in bytes
+     * @throws IOException if the storage cannot be inspected
+     */
+    long sizeInBytes() throws IOException;
+
+    /**
+     * Imports the records of a legacy JSON array data file, if the storage is still empty.
+     * The legacy file is left untouched so it can serve as a backup.
+     *
+     * @param legacyFile the legacy JSON array file
+     * @throws IOException if the legacy file cannot be read or the storage cannot be written
+     */
+    default void migrateFrom(final Path legacyFile) throws IOException {
+        if (isEmpty() && LegacyJsonFile.exists(legacyFile)) {
+            final List<EventDTO> legacyRecords = LegacyJsonFile.read(legacyFile);
+            append(legacyRecords);
+            LegacyJsonFile.LOGGER.info("Migrated {} records from {} into {}.", legacyRecords.size(), legacyFile,
+                    getClass().getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,625 @@
+package com.payrollsystem.store;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.util.ObjectMapperUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Resident, in-memory copy of every event in the {@link EventStorage}, held as {@link EventColumns}.
+ * <p>
+ * The store is loaded once at startup and updated in place whenever a batch is committed,
+ * so reports never have to touch the disk. If the estimated heap footprint grows past the
+ * configured memory budget the resident copy is dropped and queries page through the storage
+ * instead, holding a few {@link PagedEventTable pages} of events at a time. Concurrent commits
+ * are coalesced into a single synced storage append, and records whose {@code SequenceNo} is
+ * already committed are skipped via a {@link SequenceNoIndex}.
+ * Secondary {@link EventIndex indexes} by event type, employee and month are rebuilt on load
+ * and maintained on every commit; being a few ints per event, they stay in memory either way.
+ * Sum and count reports are served from {@link ReportAggregates}, which are kept up to date
+ * on every commit and checkpointed next to the storage every so many events; a restart folds
+ * in the events committed after the checkpoint. Periodic {@link EventSnapshot snapshots}
+ * let a restart skip replaying the part of the log they cover.
+ * <p>
+ * Reads never take a lock. Every commit publishes an immutable {@link ReadView} of the
+ * events, indexes and aggregates it leaves behind, and each query runs against the view
+ * that was current when it started. Commits are never blocked by queries, and a query
+ * never sees a batch that is only partly applied.
+ */
+public class EventStore {
+
+    private static final Logger LOGGER = LogManager.getLogger(EventStore.class);
+    private static final long DEFAULT_AGGREGATES_CHECKPOINT_EVENTS = 100_000;
+    private static final int CACHED_PAGES = 8;
+
+    private final EventStorage storage;
+    private final Path aggregatesFile;
+    private final Path snapshotFile;
+    private final long memoryBudgetBytes;
+    private final long aggregatesCheckpointEvents;
+    private final ObjectMapper mapper = ObjectMapperUtil.getMapper();
+    private final Lock commitLock = new ReentrantLock();
+    private final Lock checkpointLock = new ReentrantLock();
+    private final Lock snapshotLock = new ReentrantLock();
+    private final Queue<PendingCommit> pendingCommits = new ConcurrentLinkedQueue<>();
+    private final PagedEventTable.PageCache pages = new PagedEventTable.PageCache(this::readRows, CACHED_PAGES);
+    private EventColumns columns = new EventColumns();
+    private StringDictionary empIds;
+    private StringDictionary designations;
+    private StringDictionary eventTypes;
+    private EventSnapshot.Rows snapshotRows;
+    private ReportAggregates aggregates = new ReportAggregates();
+    private EventIndex index = new EventIndex();
+    private SequenceNoIndex sequenceNos = new SequenceNoIndex();
+    private volatile long estimatedBytes;
+    private volatile long eventCount;
+    private volatile boolean resident = true;
+    private volatile long snapshotEvents;
+    private volatile long checkpointedEvents;
+    private long version;
+    private volatile ReadView readView = new ReadView(new EventColumns(), new EventIndex(), aggregates, 0);
+
+    /**
+     * Creates a store backed by the given storage.
+     *
+     * @param storage           the storage holding the durable copy of the events
+     * @param aggregatesFile    the file the report aggregates are persisted to
+     * @param memoryBudgetBytes the maximum estimated heap the resident copy may use
+     */
+    public EventStore(final EventStorage storage, final Path aggregatesFile, final long memoryBudgetBytes) {
+        this(storage, aggregatesFile, null, memoryBudgetBytes);
+    }
+
+    /**
+     * Creates a store backed by the given storage that can be restarted from snapshots.
+     *
+     * @param storage           the storage holding the durable copy of the events
+     * @param aggregatesFile    the file the report aggregates are persisted to
+     * @param snapshotFile      the file snapshots of the resident events are written to, or null
+     * @param memoryBudgetBytes the maximum estimated heap the resident copy may use
+     */
+    public EventStore(final EventStorage storage, final Path aggregatesFile, final Path snapshotFile,
+                      final long memoryBudgetBytes) {
+        this(storage, aggregatesFile, snapshotFile, memoryBudgetBytes, DEFAULT_AGGREGATES_CHECKPOINT_EVENTS);
+    }
+
+    /**
+     * Creates a store backed by the given storage that can be restarted from snapshots.
+     *
+     * @param storage                    the storage holding the durable copy of the events
+     * @param aggregatesFile             the file the report aggregates are checkpointed to
+     * @param snapshotFile               the file snapshots of the resident events are written to, or null
+     * @param memoryBudgetBytes          the maximum estimated heap the resident copy may use
+     * @param aggregatesCheckpointEvents the number of committed events after which the aggregates
+     *                                   are checkpointed again
+     */
+    public EventStore(final EventStorage storage, final Path aggregatesFile, final Path snapshotFile,
+                      final long memoryBudgetBytes, final long aggregatesCheckpointEvents) {
+        this.storage = storage;
+        this.aggregatesFile = aggregatesFile;
+        this.snapshotFile = snapshotFile;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.aggregatesCheckpointEvents = aggregatesCheckpointEvents;
+    }
+
+    /**
+     * Loads every stored event into memory, together with the persisted report aggregates.
+     * If there is a snapshot, the events it covers are read from it and only the log tail
+     * written after it is replayed from the storage.
+     *
+     * @throws IOException if the storage cannot be read, or has been compacted past the snapshot
+     */
+    public void load() throws IOException {
+        commitLock.lock();
+        try {
+            final EventSnapshot snapshot = snapshotFile == null ? null : EventSnapshot.read(snapshotFile);
+            final long snapshotted = snapshot == null ? 0 : snapshot.getEventCount();
+            if (storage.firstRecord() > snapshotted) {
+                throw new IOException("The event storage is compacted up to record " + storage.firstRecord()
+                        + " but the snapshot only covers " + snapshotted + " events");
+            }
+            final EventColumns loaded = snapshot == null ? new EventColumns() : snapshot.getColumns();
+            loaded.addAll(storage.readFrom(snapshotted));
+            index = new EventIndex();
+            index.addRows(loaded, 0);
+            sequenceNos = new SequenceNoIndex();
+            for (int row = 0; row < loaded.size(); row++) {
+                sequenceNos.add(loaded.sequenceNo(row), row);
+            }
+            loadAggregates(loaded);
+            pages.clear();
+            resetSnapshotRows();
+            columns = loaded;
+            eventCount = loaded.size();
+            estimatedBytes = loaded.estimatedBytes();
+            resident = true;
+            snapshotEvents = snapshotted;
+            checkMemoryBudget();
+            publish();
+            LOGGER.info("Loaded {} events into the event store, {} of them from the snapshot (~{} bytes).",
+                    eventCount, snapshotted, estimatedBytes);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the resident events if enough were committed since the last one,
+     * then lets the storage drop the records the snapshot covers. The rows to write are taken
+     * under the commit lock, but written, checked and compacted outside it, so neither commits
+     * nor reports wait on the snapshot. Snapshots are taken one at a time.
+     *
+     * @param minNewEvents the number of events that must have been committed since the last snapshot
+     * @param compact      whether the storage may drop the records covered by the snapshot
+     * @return the number of events in the new snapshot, or -1 if none was taken
+     * @throws IOException if the snapshot cannot be written or the storage cannot be compacted
+     */
+    public long snapshot(final long minNewEvents, final boolean compact) throws IOException {
+        if (snapshotFile == null) {
+            return -1;
+        }
+        snapshotLock.lock();
+        try {
+            final EventColumns head;
+            commitLock.lock();
+            try {
+                final long newEvents = eventCount - snapshotEvents;
+                if (!resident || newEvents <= 0 || newEvents < minNewEvents) {
+                    return -1;
+                }
+                head = columns.head((int) eventCount);
+            } finally {
+                commitLock.unlock();
+            }
+            final long start = System.nanoTime();
+            EventSnapshot.write(snapshotFile, head, head.size());
+            snapshotEvents = head.size();
+            LOGGER.info("Wrote a snapshot of {} events in {} ms.", snapshotEvents,
+                    (System.nanoTime() - start) / 1_000_000);
+            if (compact) {
+                storage.compactBefore(snapshotEvents);
+            }
+            resetSnapshotRows();
+            checkpointAggregates();
+            return snapshotEvents;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Durably appends a batch to the storage, then to the resident copy and the report aggregates.
+     * <p>
+     * Concurrent callers are group committed: batches queue up while another commit is in
+     * flight, and whichever caller takes the commit next writes every queued batch in a single
+     * synced append. Each caller returns once its own batch is durable and visible to reads.
+     * The batch becomes visible all at once, when the commit publishes its read view.
+     * <p>
+     * Ingestion is idempotent on {@code SequenceNo}: records whose sequence number is already
+     * committed, or appears earlier in the same group, are skipped and reported as duplicates.
+     *
+     * @param records the records to commit
+     * @return the bytes written to the storage for this batch and the records skipped as duplicates
+     * @throws IOException if the storage cannot be written
+     */
+    public CommitResult append(final List<EventDTO> records) throws IOException {
+        if (records.isEmpty()) {
+            return new CommitResult(0, new BitSet());
+        }
+        final PendingCommit commit = new PendingCommit(records);
+        pendingCommits.add(commit);
+        commitLock.lock();
+        try {
+            if (!commit.done) {
+                commitPending();
+            }
+        } finally {
+            commitLock.unlock();
+        }
+        if (commit.failure != null) {
+            throw new IOException("Failed to commit " + records.size() + " records", commit.failure);
+        }
+        if (eventCount - checkpointedEvents >= aggregatesCheckpointEvents && checkpointLock.tryLock()) {
+            try {
+                writeCheckpoint();
+            } finally {
+                checkpointLock.unlock();
+            }
+        }
+        return new CommitResult(commit.bytesWritten, commit.duplicates);
+    }
+
+    /**
+     * Runs a query against the events of the latest published commit.
+     *
+     * @param query the query to evaluate over the events
+     * @param <T>   the query result type
+     * @return the query result
+     * @throws IOException if the store is not resident and the storage cannot be read
+     */
+    public <T> T read(final Function<EventTable, T> query) throws IOException {
+        try {
+            return query.apply(readView.table);
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs a query against a consistent view of all events together with the secondary
+     * indexes over it, so selective queries can visit only the matching rows.
+     *
+     * @param query the query to evaluate over the events and their indexes
+     * @param <T>   the query result type
+     * @return the query result
+     * @throws IOException if the store is not resident and the storage cannot be read
+     */
+    public <T> T readIndexed(final BiFunction<EventTable, EventIndex, T> query) throws IOException {
+        final ReadView view = readView;
+        try {
+            return query.apply(view.table, view.index);
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Runs a query against the incrementally maintained report aggregates.
+     *
+     * @param query the query to evaluate over the aggregates
+     * @param <T>   the query result type
+     * @return the query result
+     */
+    public <T> T readAggregates(final Function<ReportAggregates, T> query) {
+        return query.apply(readView.aggregates);
+    }
+
+    /**
+     * Runs a query that needs the events, their indexes and the report aggregates together,
+     * all taken from the same commit, so that results derived from each agree with one another.
+     * The events are read from storage at most once, however many results the query derives.
+     *
+     * @param query the query to evaluate over the view
+     * @param <T>   the query result type
+     * @return the query result
+     * @throws IOException if the store is not resident and the storage cannot be read
+     */
+    public <T> T readView(final ViewQuery<T> query) throws IOException {
+        final ReadView view = readView;
+        try {
+            return query.apply(view.table, view.index, view.aggregates);
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getIndexEstimatedBytes() {
+        return readView.index.estimatedBytes() + sequenceNos.estimatedBytes();
+    }
+
+    /**
+     * Measures the space the stored events take on disk.
+     *
+     * @return the size of the storage in bytes
+     * @throws IOException if the storage cannot be inspected
+     */
+    public long getStorageBytes() throws IOException {
+        return storage.sizeInBytes();
+    }
+
+    /**
+     * Returns the data version of the latest published commit, bumped by every commit that adds
+     * events. A version read before a query never runs ahead of the data the query sees.
+     *
+     * @return the data version
+     */
+    public long getVersion() {
+        return readView.version;
+    }
+
+    public long getSnapshotEvents() {
+        return snapshotEvents;
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    public boolean isResident() {
+        return resident;
+    }
+
+    /**
+     * Writes every queued batch as one group. Must be called holding the commit lock.
+     */
+    private void commitPending() throws IOException {
+        final List<PendingCommit> group = new ArrayList<>();
+        PendingCommit next;
+        while ((next = pendingCommits.poll()) != null) {
+            group.add(next);
+        }
+        final List<EventDTO> records = new ArrayList<>();
+        final Set<String> groupSequenceNos = new HashSet<>();
+        final long bytesWritten;
+        try {
+            for (final PendingCommit commit : group) {
+                for (int i = 0; i < commit.records.size(); i++) {
+                    final EventDTO record = commit.records.get(i);
+                    final String sequenceNo = record.getSequenceNo();
+                    final boolean duplicate = sequenceNo != null && !sequenceNo.isEmpty()
+                            && (!groupSequenceNos.add(sequenceNo) || isCommitted(sequenceNo));
+                    if (duplicate) {
+                        commit.duplicates.set(i);
+                    } else {
+                        records.add(record);
+                        commit.accepted++;
+                    }
+                }
+            }
+            bytesWritten = storage.append(records);
+        } catch (final IOException | RuntimeException e) {
+            group.forEach(commit -> commit.fail(e));
+            return;
+        }
+        if (!records.isEmpty()) {
+            for (int i = 0; i < records.size(); i++) {
+                sequenceNos.add(records.get(i).getSequenceNo(), (int) eventCount + i);
+            }
+            index.addAll((int) eventCount, records);
+            addResident(records);
+            aggregates = aggregates.plus(records);
+            version++;
+            publish();
+        }
+        if (group.size() > 1) {
+            LOGGER.debug("Group committed {} batches ({} records).", group.size(), records.size());
+        }
+        long remainingBytes = bytesWritten;
+        for (int i = 0; i < group.size(); i++) {
+            final PendingCommit commit = group.get(i);
+            final long share = i == group.size() - 1 || records.isEmpty()
+                    ? remainingBytes : bytesWritten * commit.accepted / records.size();
+            remainingBytes -= share;
+            commit.bytesWritten = share;
+        }
+        group.forEach(commit -> commit.done = true);
+    }
+
+    /**
+     * Checks whether a sequence number is already committed, confirming a match against the
+     * sequence number stored in the row. Stores that are not resident check the fingerprints
+     * first, so only the rare sequence number that looks committed has its row paged in.
+     */
+    private boolean isCommitted(final String sequenceNo) {
+        if (resident) {
+            return sequenceNos.find(sequenceNo, columns::sequenceNo) >= 0;
+        }
+        final EventTable table = readView.table;
+        return sequenceNos.contains(sequenceNo) && sequenceNos.find(sequenceNo, table::sequenceNo) >= 0;
+    }
+
+    /**
+     * Publishes the current events, indexes and aggregates as the read view. Must be called
+     * holding the commit lock.
+     */
+    private void publish() {
+        final EventTable table = resident ? columns.head((int) eventCount)
+                : new PagedEventTable(pages, (int) eventCount, empIds.view(), designations.view(), eventTypes.view());
+        readView = new ReadView(table, index.view(), aggregates, version);
+    }
+
+    /**
+     * Reads the events of a range of rows for the paged tables of a store that is not resident,
+     * taking the rows the storage has compacted away from the snapshot.
+     */
+    private List<EventDTO> readRows(final int fromRow, final int toRow) throws IOException {
+        final long firstStored = storage.firstRecord();
+        if (fromRow >= firstStored) {
+            return storage.readRange(fromRow, toRow);
+        }
+        final List<EventDTO> rows = new ArrayList<>(snapshotRows().read(fromRow, (int) Math.min(toRow, firstStored)));
+        if (toRow > firstStored) {
+            rows.addAll(storage.readRange(firstStored, toRow));
+        }
+        return rows;
+    }
+
+    private synchronized EventSnapshot.Rows snapshotRows() throws IOException {
+        if (snapshotRows == null) {
+            if (snapshotFile == null || !Files.exists(snapshotFile)) {
+                throw new IOException("The event storage is compacted but has no snapshot to read the rest from");
+            }
+            snapshotRows = EventSnapshot.openRows(snapshotFile);
+        }
+        return snapshotRows;
+    }
+
+    private synchronized void resetSnapshotRows() {
+        snapshotRows = null;
+    }
+
+    private void addResident(final List<EventDTO> records) {
+        eventCount += records.size();
+        if (!resident) {
+            for (final EventDTO record : records) {
+                empIds.encode(record.getEmpId());
+                designations.encode(record.getDesignation());
+                eventTypes.encode(record.getEvent());
+            }
+            return;
+        }
+        columns.addAll(records);
+        estimatedBytes = columns.estimatedBytes();
+        checkMemoryBudget();
+    }
+
+    private void checkMemoryBudget() {
+        if (estimatedBytes > memoryBudgetBytes) {
+            LOGGER.warn("Event store exceeds its memory budget ({} > {} bytes), serving reports from storage.",
+                    estimatedBytes, memoryBudgetBytes);
+            empIds = columns.empIds();
+            designations = columns.designations();
+            eventTypes = columns.eventTypes();
+            columns = new EventColumns();
+            estimatedBytes = 0;
+            resident = false;
+        }
+    }
+
+    private void loadAggregates(final EventTable loaded) throws IOException {
+        ReportAggregates persisted = null;
+        if (Files.exists(aggregatesFile)) {
+            try {
+                final JsonNode node = mapper.readTree(aggregatesFile.toFile());
+                if (node.path("format").asInt() == ReportAggregates.FORMAT) {
+                    persisted = mapper.treeToValue(node, ReportAggregates.class);
+                } else {
+                    LOGGER.info("Rebuilding report aggregates persisted in an older format.");
+                }
+            } catch (final IOException e) {
+                LOGGER.error("Discarding unreadable report aggregates: {}", e.getMessage());
+            }
+        }
+        if (persisted != null && !persisted.isPartitioned()) {
+            LOGGER.info("Rebuilding report aggregates persisted without period partitions.");
+            persisted = null;
+        }
+        if (persisted == null || persisted.getEventCount() > loaded.size()) {
+            persisted = new ReportAggregates();
+        }
+        final long covered = persisted.getEventCount();
+        if (covered < loaded.size()) {
+            persisted.merge(ReportAggregates.of(loaded, (int) covered));
+            LOGGER.info("Applied {} stored events on top of the persisted report aggregates.", loaded.size() - covered);
+        }
+        aggregates = persisted;
+        checkpointedEvents = covered;
+        if (covered != loaded.size()) {
+            persistAggregates(aggregates);
+        }
+    }
+
+    /**
+     * Checkpoints the report aggregates of the latest commit, unless they are already on disk.
+     * Commits are not blocked while the aggregates are written: published aggregates are never
+     * modified, so they are serialized outside the commit lock.
+     *
+     * @return the number of events the checkpoint covers, or -1 if none was written
+     */
+    public long checkpointAggregates() {
+        checkpointLock.lock();
+        try {
+            return writeCheckpoint();
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the checkpoint. Must be called holding the checkpoint lock.
+     */
+    private long writeCheckpoint() {
+        final ReportAggregates published = readView.aggregates;
+        if (published.getEventCount() <= checkpointedEvents) {
+            return -1;
+        }
+        return persistAggregates(published) ? published.getEventCount() : -1;
+    }
+
+    /**
+     * Persists the aggregates. Between checkpoints the file falls behind the log, and a
+     * restart replays the events after the ones it covers. The file is only a cache of what the
+     * stored events add up to, so a failed write is logged rather than failing a commit: the
+     * events are already durable, and a restart rebuilds whatever the file is missing.
+     */
+    private boolean persistAggregates(final ReportAggregates persisted) {
+        final Path tmp = aggregatesFile.resolveSibling(aggregatesFile.getFileName() + ".tmp");
+        try {
+            mapper.writeValue(tmp.toFile(), persisted);
+            Files.move(tmp, aggregatesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            checkpointedEvents = persisted.getEventCount();
+            return true;
+        } catch (final IOException e) {
+            LOGGER.error("Failed to persist the report aggregates, they will be rebuilt from the events on restart", e);
+            return false;
+        }
+    }
+
+    /**
+     * A query over everything a commit left behind.
+     *
+     * @param <T> the query result type
+     */
+    @FunctionalInterface
+    public interface ViewQuery<T> {
+        T apply(EventTable table, EventIndex index, ReportAggregates aggregates);
+    }
+
+    /**
+     * What a query sees: the events, indexes and aggregates as of one commit. None of it is
+     * modified after the view is published.
+     */
+    private static final class ReadView {
+        private final EventTable table;
+        private final EventIndex index;
+        private final ReportAggregates aggregates;
+        private final long version;
+
+        ReadView(final EventTable table, final EventIndex index, final ReportAggregates aggregates,
+                 final long version) {
+            this.table = table;
+            this.index = index;
+            this.aggregates = aggregates;
+            this.version = version;
+        }
+    }
+
+    /**
+     * A batch waiting to be group committed. Written under the commit lock and read by its
+     * caller after acquiring the same lock, so no further synchronization is needed.
+     */
+    private static final class PendingCommit {
+        private final List<EventDTO> records;
+        private final BitSet duplicates = new BitSet();
+        private int accepted;
+        private boolean done;
+        private long bytesWritten;
+        private Exception failure;
+
+        PendingCommit(final List<EventDTO> records) {
+            this.records = records;
+        }
+
+        void fail(final Exception e) {
+            failure = e;
+            done = true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+
+/**
+ * Row-addressable, read-only view of stored events for report scans.
+ * <p>
+ * Employee ids, designations and event types are exposed as dictionary codes so scans can
+ * filter and group on ints; only rows that end up in a response need to be turned back into
+ * an {@link EventDTO}.
+ */
+public interface EventTable {
+
+    int size();
+
+    int empIdCode(int row);
+
+    int designationCode(int row);
+
+    int eventTypeCode(int row);
+
+    int epochDay(int row);
+
+    double value(int row);
+
+    /**
+     * Returns the sequence number of a row without rebuilding the whole event.
+     *
+     * @param row the row index
+     * @return the sequence number
+     */
+    String sequenceNo(int row);
+
+    StringDictionary empIds();
+
+    StringDictionary designations();
+
+    StringDictionary eventTypes();
+
+    /**
+     * Returns a read-only view of the first rows. Rows appended to this table afterwards
+     * never show through the view, so it can be read while the table keeps growing.
+     *
+     * @param rows the number of rows to expose, at most {@link #size()}
+     * @return the view
+     */
+    EventTable head(int rows);
+
+    /**
+     * Rebuilds the event held in a row.
+     *
+     * @param row the row index
+     * @return the event data transfer object
+     */
+    EventDTO toEvent(int row);
+}
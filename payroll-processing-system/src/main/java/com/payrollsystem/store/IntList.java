@@ -0,0 +1,76 @@
+package com.payrollsystem.store;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used for row-number postings without boxing.
+ * <p>
+ * Values are only ever appended, and growing copies into a new array, so a {@link #view()}
+ * sharing the current array stays valid while the list keeps growing.
+ */
+public class IntList {
+
+    private static final IntList EMPTY = new IntList(0).view();
+
+    private int[] values;
+    private int size;
+    private boolean readOnly;
+
+    public IntList() {
+        this(8);
+    }
+
+    private IntList(final int capacity) {
+        values = new int[capacity];
+    }
+
+    /**
+     * Returns a shared empty list; callers must not add to it.
+     *
+     * @return the empty list
+     */
+    public static IntList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a read-only view of the values added so far. It shares the backing array, which
+     * later additions never write below the current size.
+     *
+     * @return the view
+     */
+    public IntList view() {
+        final IntList view = new IntList(0);
+        view.values = values;
+        view.size = size;
+        view.readOnly = true;
+        return view;
+    }
+
+    public void add(final int value) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Cannot add to a read-only view");
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(8, size * 2));
+        }
+        values[size++] = value;
+    }
+
+    public int get(final int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the heap held by the list.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return 32 + values.length * 4L;
+    }
+}
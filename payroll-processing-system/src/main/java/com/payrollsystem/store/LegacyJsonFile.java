@@ -0,0 +1,57 @@
+package com.payrollsystem.store;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.util.ObjectMapperUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reads and writes the legacy single-array JSON data file ({@code EmployeeData.json}).
+ */
+public final class LegacyJsonFile {
+
+    static final Logger LOGGER = LogManager.getLogger(LegacyJsonFile.class);
+
+    private LegacyJsonFile() {
+    }
+
+    /**
+     * Tells whether a non-empty legacy file exists.
+     *
+     * @param file the legacy JSON file
+     * @return true if the file exists and has content
+     * @throws IOException if the file cannot be inspected
+     */
+    public static boolean exists(final Path file) throws IOException {
+        return Files.exists(file) && Files.size(file) > 0;
+    }
+
+    /**
+     * Reads every record of a legacy JSON array file.
+     *
+     * @param file the legacy JSON file
+     * @return the records in file order
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static List<EventDTO> read(final Path file) throws IOException {
+        return ObjectMapperUtil.getMapper().readValue(file.toFile(), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * Writes records as a single JSON array, replacing the file.
+     *
+     * @param file    the legacy JSON file
+     * @param records the records to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final Path file, final List<EventDTO> records) throws IOException {
+        ObjectMapperUtil.getMapper().writeValue(file.toFile(), records);
+    }
+}
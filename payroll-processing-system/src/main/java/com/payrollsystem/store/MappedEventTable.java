@@ -0,0 +1,116 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+
+import java.nio.MappedByteBuffer;
+import java.time.LocalDate;
+import java.util.function.LongFunction;
+
+/**
+ * {@link EventTable} reading fixed-width records straight out of memory-mapped
+ * {@link BinaryEventLog} files. Files larger than 2 GB are mapped as several chunks.
+ */
+class MappedEventTable implements EventTable {
+
+    static final int ROWS_PER_CHUNK = Integer.MAX_VALUE / BinaryEventLog.RECORD_SIZE;
+    private static final int EMP_ID = 0;
+    private static final int FIRST_NAME = 4;
+    private static final int LAST_NAME = 8;
+    private static final int DESIGNATION = 12;
+    private static final int EVENT_TYPE = 16;
+    private static final int EPOCH_DAY = 20;
+    private static final int VALUE = 24;
+    private static final int SEQUENCE_NO_REF = 32;
+    private static final int NOTES_REF = 40;
+
+    private final MappedByteBuffer[] chunks;
+    private final int size;
+    private final StringDictionary dictionary;
+    private final LongFunction<String> strings;
+
+    MappedEventTable(final MappedByteBuffer[] chunks, final int size, final StringDictionary dictionary,
+                     final LongFunction<String> strings) {
+        this.chunks = chunks;
+        this.size = size;
+        this.dictionary = dictionary;
+        this.strings = strings;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public EventTable head(final int rows) {
+        return rows == size ? this : new MappedEventTable(chunks, rows, dictionary, strings);
+    }
+
+    @Override
+    public int empIdCode(final int row) {
+        return getInt(row, EMP_ID);
+    }
+
+    @Override
+    public int designationCode(final int row) {
+        return getInt(row, DESIGNATION);
+    }
+
+    @Override
+    public int eventTypeCode(final int row) {
+        return getInt(row, EVENT_TYPE);
+    }
+
+    @Override
+    public int epochDay(final int row) {
+        return getInt(row, EPOCH_DAY);
+    }
+
+    @Override
+    public double value(final int row) {
+        return chunks[row / ROWS_PER_CHUNK].getDouble(offset(row) + VALUE);
+    }
+
+    @Override
+    public String sequenceNo(final int row) {
+        return strings.apply(chunks[row / ROWS_PER_CHUNK].getLong(offset(row) + SEQUENCE_NO_REF));
+    }
+
+    @Override
+    public StringDictionary empIds() {
+        return dictionary;
+    }
+
+    @Override
+    public StringDictionary designations() {
+        return dictionary;
+    }
+
+    @Override
+    public StringDictionary eventTypes() {
+        return dictionary;
+    }
+
+    @Override
+    public EventDTO toEvent(final int row) {
+        final MappedByteBuffer chunk = chunks[row / ROWS_PER_CHUNK];
+        final int offset = offset(row);
+        return new EventDTO(strings.apply(chunk.getLong(offset + SEQUENCE_NO_REF)),
+                dictionary.decode(chunk.getInt(offset + EMP_ID)),
+                dictionary.decode(chunk.getInt(offset + FIRST_NAME)),
+                dictionary.decode(chunk.getInt(offset + LAST_NAME)),
+                dictionary.decode(chunk.getInt(offset + DESIGNATION)),
+                dictionary.decode(chunk.getInt(offset + EVENT_TYPE)),
+                chunk.getDouble(offset + VALUE),
+                LocalDate.ofEpochDay(chunk.getInt(offset + EPOCH_DAY)),
+                strings.apply(chunk.getLong(offset + NOTES_REF)));
+    }
+
+    private int getInt(final int row, final int field) {
+        return chunks[row / ROWS_PER_CHUNK].getInt(offset(row) + field);
+    }
+
+    private static int offset(final int row) {
+        return (row % ROWS_PER_CHUNK) * BinaryEventLog.RECORD_SIZE;
+    }
+}
@@ -0,0 +1,231 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table over events that are not held in memory, read from storage a page of
+ * {@value #PAGE_ROWS} rows at a time as queries reach them.
+ * <p>
+ * Pages are kept in a small {@link PageCache} shared by every table of a store, so a query
+ * visiting rows in order reads each page once, consecutive queries reuse the pages they have
+ * in common, and no more than a few pages are ever held. Dictionary codes come from the
+ * store's dictionaries, which keep covering every committed event, so a code looked up before
+ * a scan matches the rows it reads.
+ * <p>
+ * Storage errors surface as {@link UncheckedIOException}s, since the table methods cannot
+ * throw checked exceptions.
+ */
+public final class PagedEventTable implements EventTable {
+
+    static final int PAGE_ROWS = 16 * 1024;
+
+    private final PageCache cache;
+    private final int size;
+    private final StringDictionary empIds;
+    private final StringDictionary designations;
+    private final StringDictionary eventTypes;
+    private Page current;
+
+    /**
+     * Creates a table over the first rows of a store.
+     *
+     * @param cache        the page cache of the store
+     * @param size         the number of rows
+     * @param empIds       a view of the employee id dictionary covering the rows
+     * @param designations a view of the designation dictionary covering the rows
+     * @param eventTypes   a view of the event type dictionary covering the rows
+     */
+    public PagedEventTable(final PageCache cache, final int size, final StringDictionary empIds,
+                           final StringDictionary designations, final StringDictionary eventTypes) {
+        this.cache = cache;
+        this.size = size;
+        this.empIds = empIds;
+        this.designations = designations;
+        this.eventTypes = eventTypes;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int empIdCode(final int row) {
+        final Page page = page(row);
+        return page.empIdCodes[row - page.firstRow];
+    }
+
+    @Override
+    public int designationCode(final int row) {
+        final Page page = page(row);
+        return page.designationCodes[row - page.firstRow];
+    }
+
+    @Override
+    public int eventTypeCode(final int row) {
+        final Page page = page(row);
+        return page.eventTypeCodes[row - page.firstRow];
+    }
+
+    @Override
+    public int epochDay(final int row) {
+        final Page page = page(row);
+        return page.epochDays[row - page.firstRow];
+    }
+
+    @Override
+    public double value(final int row) {
+        final Page page = page(row);
+        return page.values[row - page.firstRow];
+    }
+
+    @Override
+    public String sequenceNo(final int row) {
+        final Page page = page(row);
+        return page.events.get(row - page.firstRow).getSequenceNo();
+    }
+
+    @Override
+    public StringDictionary empIds() {
+        return empIds;
+    }
+
+    @Override
+    public StringDictionary designations() {
+        return designations;
+    }
+
+    @Override
+    public StringDictionary eventTypes() {
+        return eventTypes;
+    }
+
+    @Override
+    public EventTable head(final int rows) {
+        return new PagedEventTable(cache, rows, empIds, designations, eventTypes);
+    }
+
+    @Override
+    public EventDTO toEvent(final int row) {
+        final Page page = page(row);
+        final EventDTO event = page.events.get(row - page.firstRow);
+        return new EventDTO(event.getSequenceNo(), event.getEmpId(), event.getFirstName(), event.getLastName(),
+                event.getDesignation(), event.getEvent(), event.getValue(), event.getEventDate(), event.getNotes());
+    }
+
+    /**
+     * Returns the page holding a row, trying the page this table used last before the cache.
+     */
+    private Page page(final int row) {
+        final Page last = current;
+        if (last != null && row >= last.firstRow && row < last.firstRow + last.events.size()) {
+            return last;
+        }
+        final Page page = cache.page(row / PAGE_ROWS, size, this);
+        current = page;
+        return page;
+    }
+
+    /**
+     * Reads the events of a range of rows from wherever a store keeps them.
+     */
+    @FunctionalInterface
+    public interface RowReader {
+        List<EventDTO> read(int fromRow, int toRow) throws IOException;
+    }
+
+    /**
+     * The most recently used pages of a store. Rows never change once committed, so a page
+     * stays valid until the store is reloaded; a page read while the store held fewer rows is
+     * read again by tables that need the rows since added to it.
+     */
+    public static final class PageCache {
+        private final RowReader reader;
+        private final Map<Integer, Page> pages;
+
+        /**
+         * Creates a cache of at most {@code maxPages} pages.
+         *
+         * @param reader   reads the events of a range of rows
+         * @param maxPages the number of pages to keep
+         */
+        public PageCache(final RowReader reader, final int maxPages) {
+            this.reader = reader;
+            this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Integer, Page> eldest) {
+                    return size() > maxPages;
+                }
+            };
+        }
+
+        /**
+         * Drops every cached page, for when the rows are read from a different source.
+         */
+        public synchronized void clear() {
+            pages.clear();
+        }
+
+        private Page page(final int pageNo, final int tableSize, final PagedEventTable table) {
+            final int firstRow = pageNo * PAGE_ROWS;
+            final int rows = Math.min(PAGE_ROWS, tableSize - firstRow);
+            synchronized (this) {
+                final Page cached = pages.get(pageNo);
+                if (cached != null && cached.events.size() >= rows) {
+                    return cached;
+                }
+            }
+            final Page page;
+            try {
+                page = new Page(firstRow, reader.read(firstRow, firstRow + rows), table);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (page.events.size() < rows) {
+                throw new UncheckedIOException(new IOException("Storage holds only " + page.events.size()
+                        + " of the " + rows + " events from row " + firstRow));
+            }
+            synchronized (this) {
+                pages.put(pageNo, page);
+            }
+            return page;
+        }
+    }
+
+    /**
+     * The events of a page of rows, with their columns encoded once when the page is read.
+     */
+    private static final class Page {
+        private final int firstRow;
+        private final List<EventDTO> events;
+        private final int[] empIdCodes;
+        private final int[] designationCodes;
+        private final int[] eventTypeCodes;
+        private final int[] epochDays;
+        private final double[] values;
+
+        Page(final int firstRow, final List<EventDTO> events, final PagedEventTable table) {
+            this.firstRow = firstRow;
+            this.events = events;
+            empIdCodes = new int[events.size()];
+            designationCodes = new int[events.size()];
+            eventTypeCodes = new int[events.size()];
+            epochDays = new int[events.size()];
+            values = new double[events.size()];
+            for (int i = 0; i < events.size(); i++) {
+                final EventDTO event = events.get(i);
+                empIdCodes[i] = table.empIds.codeOf(event.getEmpId());
+                designationCodes[i] = table.designations.codeOf(event.getDesignation());
+                eventTypeCodes[i] = table.eventTypes.codeOf(event.getEvent());
+                epochDays[i] = (int) event.getEventDate().toEpochDay();
+                values[i] = event.getValue();
+            }
+        }
+    }
+}
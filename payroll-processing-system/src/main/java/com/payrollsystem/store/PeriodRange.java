@@ -0,0 +1,116 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.exception.InvalidPeriodException;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Inclusive range of year-month periods that a report is restricted to. Either end may be
+ * open. Stores keep their per-period partitions keyed by year-month, so {@link #select} looks
+ * up only the partitions in range without visiting the others.
+ */
+public final class PeriodRange {
+
+    public static final PeriodRange ALL = new PeriodRange(null, null);
+
+    private final YearMonth from;
+    private final YearMonth to;
+
+    private PeriodRange(final YearMonth from, final YearMonth to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Builds a range from report request parameters. A year narrows the range to its twelve
+     * months, on top of any explicit bounds.
+     *
+     * @param year the calendar year, or null
+     * @param from the first period, or null for no lower bound
+     * @param to   the last period, or null for no upper bound
+     * @return the range
+     * @throws InvalidPeriodException if the year is out of range or the range ends before it starts
+     */
+    public static PeriodRange of(final Integer year, final YearMonth from, final YearMonth to) {
+        YearMonth lower = from;
+        YearMonth upper = to;
+        if (year != null) {
+            if (year < Year.MIN_VALUE || year > Year.MAX_VALUE) {
+                throw new InvalidPeriodException("Report year " + year + " is out of range");
+            }
+            final YearMonth january = YearMonth.of(year, 1);
+            final YearMonth december = YearMonth.of(year, 12);
+            lower = lower == null || lower.isBefore(january) ? january : lower;
+            upper = upper == null || upper.isAfter(december) ? december : upper;
+        }
+        if (lower != null && upper != null && lower.isAfter(upper)) {
+            throw new InvalidPeriodException("Report period " + lower + " to " + upper + " is empty");
+        }
+        return lower == null && upper == null ? ALL : new PeriodRange(lower, upper);
+    }
+
+    public YearMonth getFrom() {
+        return from;
+    }
+
+    public YearMonth getTo() {
+        return to;
+    }
+
+    public boolean isAll() {
+        return from == null && to == null;
+    }
+
+    public boolean contains(final LocalDate date) {
+        final YearMonth period = YearMonth.from(date);
+        return (from == null || !period.isBefore(from)) && (to == null || !period.isAfter(to));
+    }
+
+    /**
+     * Looks up the partitions in range, given the earliest and latest period holding one.
+     * Only the months between the bounds of both are looked up.
+     *
+     * @param periods the partitions keyed by period
+     * @param first   the earliest period in the map, or null if it is empty
+     * @param last    the latest period in the map, or null if it is empty
+     * @param <V>     the partition type
+     * @return the partitions in range, oldest first
+     */
+    public <V> NavigableMap<YearMonth, V> select(final Map<YearMonth, V> periods, final YearMonth first,
+                                                 final YearMonth last) {
+        final NavigableMap<YearMonth, V> selected = new TreeMap<>();
+        if (first == null || last == null) {
+            return selected;
+        }
+        final YearMonth lower = from == null || from.isBefore(first) ? first : from;
+        final YearMonth upper = to == null || to.isAfter(last) ? last : to;
+        for (YearMonth period = lower; !period.isAfter(upper); period = period.plusMonths(1)) {
+            final V partition = periods.get(period);
+            if (partition != null) {
+                selected.put(period, partition);
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof PeriodRange other && Objects.equals(from, other.from) && Objects.equals(to, other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return (from == null ? "*" : from) + ".." + (to == null ? "*" : to);
+    }
+}
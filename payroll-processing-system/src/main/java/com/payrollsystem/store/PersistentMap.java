@@ -0,0 +1,320 @@
+package com.payrollsystem.store;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Hash map that is never changed once shared, used for state published to concurrent readers.
+ * <p>
+ * Entries live in a 32-way hash trie. A map made {@link #editable editable} under an open
+ * {@link Edit} shares the trie with the map it came from and copies a node only the first time
+ * the edit changes something below it, so an update costs what it touches rather than the size
+ * of the map. Once the edit is closed the map is read-only, and {@link #put} throws.
+ * <p>
+ * Keys iterate in insertion order. They are recorded in an append-only array that later maps
+ * keep appending to in place, like an {@link IntList#view()}: a map only reads the slots below
+ * its own size, so keys added afterwards never show through. Entries cannot be removed, and
+ * maps still being edited must not be handed to other threads.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY =
+            new PersistentMap<>(null, new Node(null, 0, new Object[0]), 0, new Object[0], new Tail());
+
+    private final Edit edit;
+    private Node root;
+    private int size;
+    private Object[] keys;
+    private Tail tail;
+
+    private PersistentMap(final Edit edit, final Node root, final int size, final Object[] keys, final Tail tail) {
+        this.edit = edit;
+        this.root = root;
+        this.size = size;
+        this.keys = keys;
+        this.tail = tail;
+    }
+
+    /**
+     * Returns the shared empty map.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Copies the entries of a map, keeping its iteration order.
+     *
+     * @param map the entries to copy
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return the read-only copy
+     */
+    public static <K, V> PersistentMap<K, V> copyOf(final Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap<?, ?> persistent && (persistent.edit == null || !persistent.edit.open)) {
+            @SuppressWarnings("unchecked")
+            final PersistentMap<K, V> copy = (PersistentMap<K, V>) persistent;
+            return copy;
+        }
+        final Edit edit = new Edit();
+        final PersistentMap<K, V> copy = PersistentMap.<K, V>empty().editable(edit);
+        copy.putAll(map);
+        edit.close();
+        return copy;
+    }
+
+    /**
+     * Returns a map with the same entries that can be changed until the edit is closed. It
+     * shares everything with this map, which stays as it is.
+     *
+     * @param edit the open edit
+     * @return the editable map, this one if it already belongs to the edit
+     */
+    public PersistentMap<K, V> editable(final Edit edit) {
+        if (this.edit == edit && edit.open) {
+            return this;
+        }
+        return new PersistentMap<>(edit, root, size, keys, tail);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        final Leaf leaf = find(key);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(final K key, final V value) {
+        if (edit == null || !edit.open) {
+            throw new UnsupportedOperationException("Cannot change a map once its edit is closed");
+        }
+        final Change change = new Change();
+        root = (Node) assoc(root, 0, new Leaf(hash(key), key, Objects.requireNonNull(value)), change);
+        if (change.added) {
+            appendKey(key);
+        }
+        return (V) change.previous;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                final Object[] order = keys;
+                final int count = size;
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < count;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<K, V> next() {
+                        if (next >= count) {
+                            throw new NoSuchElementException();
+                        }
+                        final K key = (K) order[next++];
+                        return new SimpleImmutableEntry<>(key, get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private Leaf find(final Object key) {
+        if (key == null) {
+            return null;
+        }
+        final int hash = hash(key);
+        Object slot = root;
+        int shift = 0;
+        while (slot instanceof Node node) {
+            final int bit = 1 << (hash >>> shift & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            slot = node.slots[Integer.bitCount(node.bitmap & bit - 1)];
+            shift += BITS;
+        }
+        final Leaf[] leaves = slot instanceof Collision collision ? collision.leaves : new Leaf[] {(Leaf) slot};
+        for (final Leaf leaf : leaves) {
+            if (leaf.hash == hash && leaf.key.equals(key)) {
+                return leaf;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a leaf below a slot, returning the slot to store in its place: the same node when
+     * it belongs to this edit, otherwise a copy.
+     */
+    private Object assoc(final Object slot, final int shift, final Leaf leaf, final Change change) {
+        if (slot instanceof Leaf existing) {
+            if (existing.hash == leaf.hash && existing.key.equals(leaf.key)) {
+                change.previous = existing.value;
+                return leaf;
+            }
+            change.added = true;
+            return join(shift, existing, existing.hash, leaf);
+        }
+        if (slot instanceof Collision collision) {
+            if (collision.hash != leaf.hash) {
+                change.added = true;
+                return join(shift, collision, collision.hash, leaf);
+            }
+            for (int i = 0; i < collision.leaves.length; i++) {
+                if (collision.leaves[i].key.equals(leaf.key)) {
+                    change.previous = collision.leaves[i].value;
+                    final Leaf[] leaves = collision.leaves.clone();
+                    leaves[i] = leaf;
+                    return new Collision(leaf.hash, leaves);
+                }
+            }
+            change.added = true;
+            final Leaf[] leaves = Arrays.copyOf(collision.leaves, collision.leaves.length + 1);
+            leaves[collision.leaves.length] = leaf;
+            return new Collision(leaf.hash, leaves);
+        }
+        final Node node = (Node) slot;
+        final int bit = 1 << (leaf.hash >>> shift & MASK);
+        final int index = Integer.bitCount(node.bitmap & bit - 1);
+        if ((node.bitmap & bit) == 0) {
+            change.added = true;
+            final Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = leaf;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            if (node.edit == edit) {
+                node.bitmap |= bit;
+                node.slots = slots;
+                return node;
+            }
+            return new Node(edit, node.bitmap | bit, slots);
+        }
+        final Object child = node.slots[index];
+        final Object updated = assoc(child, shift + BITS, leaf, change);
+        if (updated == child) {
+            return node;
+        }
+        final Node owned = node.edit == edit ? node : new Node(edit, node.bitmap, node.slots.clone());
+        owned.slots[index] = updated;
+        return owned;
+    }
+
+    /**
+     * Builds the node holding two slots whose hashes differ, nesting until they part. Equal
+     * hashes, which every bit has been compared for by then, share a collision list.
+     */
+    private Object join(final int shift, final Object existing, final int existingHash, final Leaf leaf) {
+        if (existingHash == leaf.hash) {
+            return new Collision(leaf.hash, new Leaf[] {(Leaf) existing, leaf});
+        }
+        final int existingFragment = existingHash >>> shift & MASK;
+        final int fragment = leaf.hash >>> shift & MASK;
+        if (existingFragment == fragment) {
+            return new Node(edit, 1 << fragment, new Object[] {join(shift + BITS, existing, existingHash, leaf)});
+        }
+        final Object[] slots = existingFragment < fragment ? new Object[] {existing, leaf} : new Object[] {leaf, existing};
+        return new Node(edit, 1 << existingFragment | 1 << fragment, slots);
+    }
+
+    private void appendKey(final Object key) {
+        synchronized (tail) {
+            if (tail.claimed == size && size < keys.length) {
+                keys[size++] = key;
+                tail.claimed = size;
+                return;
+            }
+        }
+        keys = Arrays.copyOf(keys, Math.max(8, size * 2));
+        keys[size++] = key;
+        tail = new Tail();
+        tail.claimed = size;
+    }
+
+    private static int hash(final Object key) {
+        final int hash = key.hashCode();
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * Scope of a batch of changes. Nodes copied under an edit are changed in place for the rest
+     * of it, and become shared, read-only state once it is closed.
+     */
+    public static final class Edit {
+        private boolean open = true;
+
+        public void close() {
+            open = false;
+        }
+    }
+
+    private static final class Node {
+        private final Edit edit;
+        private int bitmap;
+        private Object[] slots;
+
+        Node(final Edit edit, final int bitmap, final Object[] slots) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private record Leaf(int hash, Object key, Object value) {
+    }
+
+    private record Collision(int hash, Leaf[] leaves) {
+    }
+
+    /**
+     * Number of slots of a shared key array handed out, so only the map that ends at the
+     * last one appends in place.
+     */
+    private static final class Tail {
+        private int claimed;
+    }
+
+    private static final class Change {
+        private boolean added;
+        private Object previous;
+    }
+}
@@ -0,0 +1,380 @@
+package com.payrollsystem.store;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.util.MoneyUtil;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Report totals maintained incrementally as batches are committed.
+ * <p>
+ * Every report that is a pure sum or count is answered from these accumulators instead of
+ * re-scanning the events. The aggregates are persisted together with the number of events
+ * they cover, so after a restart only the events logged since can be applied on top.
+ * <p>
+ * Alongside the all-time totals, the aggregates are partitioned by year-month in
+ * {@link #periods}, so a report over a date range only visits the months in range.
+ * <p>
+ * Aggregates handed to readers are never modified: commits fold their batch into a
+ * {@link #plus copy} and publish that instead. The maps are {@link PersistentMap}s, so the copy
+ * shares them and a commit only copies the totals it changes and the trie nodes above them.
+ * <p>
+ * Money is summed as whole cents in {@code long}s, so totals are exact and the same in
+ * whatever order events are folded. That lets {@link #of(EventTable, int)} split a table
+ * into chunks, fold them on all cores and merge the partial results.
+ */
+@Data
+@NoArgsConstructor
+public class ReportAggregates {
+
+    /**
+     * Layout of the persisted aggregates, bumped whenever it changes so that files written
+     * by older versions are rebuilt rather than misread.
+     */
+    public static final int FORMAT = 3;
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MM");
+    private static final Set<String> PAYMENT_EVENTS = Set.of("SALARY", "BONUS", "REIMBURSEMENT");
+    private static final int FOLD_CHUNK_ROWS = 32 * 1024;
+
+    private int format = FORMAT;
+    private long eventCount;
+    private PersistentMap<String, Total> monthlySalary = PersistentMap.empty();
+    private PersistentMap<String, Total> monthlyAmount = PersistentMap.empty();
+    private PersistentMap<String, EmployeeTotal> employees = PersistentMap.empty();
+    private PersistentMap<YearMonth, PeriodTotals> periods = PersistentMap.empty();
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private YearMonth firstPeriod;
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private YearMonth lastPeriod;
+
+    public void setMonthlySalary(final Map<String, Total> monthlySalary) {
+        this.monthlySalary = PersistentMap.copyOf(monthlySalary);
+    }
+
+    public void setMonthlyAmount(final Map<String, Total> monthlyAmount) {
+        this.monthlyAmount = PersistentMap.copyOf(monthlyAmount);
+    }
+
+    public void setEmployees(final Map<String, EmployeeTotal> employees) {
+        this.employees = PersistentMap.copyOf(employees);
+    }
+
+    public void setPeriods(final Map<YearMonth, PeriodTotals> periods) {
+        this.periods = PersistentMap.copyOf(periods);
+        periods.keySet().forEach(this::coverPeriod);
+    }
+
+    /**
+     * Returns the per-period totals in range, looking up only the months in range.
+     *
+     * @param range the months to select
+     * @return the totals per month in range, oldest first
+     */
+    public NavigableMap<YearMonth, PeriodTotals> periodsIn(final PeriodRange range) {
+        return range.select(periods, firstPeriod, lastPeriod);
+    }
+
+    /**
+     * Folds a batch of committed events into the totals.
+     *
+     * @param records the committed events
+     */
+    public void apply(final List<EventDTO> records) {
+        fold(records, null);
+    }
+
+    /**
+     * Builds the aggregates of a table's rows from {@code fromRow} on. The rows are split into
+     * chunks that are folded in parallel on the common fork-join pool and merged in row order,
+     * giving exactly the result of folding them one by one.
+     *
+     * @param table   the table holding the events
+     * @param fromRow the first row to fold
+     * @return the aggregates of the rows
+     */
+    public static ReportAggregates of(final EventTable table, final int fromRow) {
+        return ForkJoinPool.commonPool().invoke(new FoldTask(table, fromRow, table.size()));
+    }
+
+    /**
+     * Adds the totals of aggregates built over the events that follow these ones. Employees
+     * and per-period payees first seen in {@code later} are appended in its order.
+     *
+     * @param later aggregates that no reader holds, as built by {@link #of(EventTable, int)}
+     */
+    public void merge(final ReportAggregates later) {
+        final PersistentMap.Edit edit = edit();
+        later.monthlySalary.forEach((month, total) -> monthlySalary.merge(month, total, Total::plus));
+        later.monthlyAmount.forEach((month, total) -> monthlyAmount.merge(month, total, Total::plus));
+        later.employees.forEach((empId, total) -> employees.merge(empId, total, EmployeeTotal::plus));
+        later.periods.forEach((yearMonth, totals) ->
+                periods.merge(yearMonth, totals, (earlier, added) -> earlier.plus(added, edit)));
+        edit.close();
+        later.periods.keySet().forEach(this::coverPeriod);
+        eventCount += later.eventCount;
+    }
+
+    /**
+     * Returns new aggregates with a batch folded in, leaving these untouched for the readers
+     * still holding them. The maps are shared with these, so only the totals the batch changes
+     * and the map nodes leading to them are copied.
+     *
+     * @param records the committed events
+     * @return the updated aggregates
+     */
+    public ReportAggregates plus(final List<EventDTO> records) {
+        final ReportAggregates next = new ReportAggregates();
+        next.eventCount = eventCount;
+        next.monthlySalary = monthlySalary;
+        next.monthlyAmount = monthlyAmount;
+        next.employees = employees;
+        next.periods = periods;
+        next.firstPeriod = firstPeriod;
+        next.lastPeriod = lastPeriod;
+        next.fold(records, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return next;
+    }
+
+    /**
+     * Folds events into the totals. With a set of owned totals, shared totals are copied
+     * before their first change and the copies recorded as owned.
+     */
+    private void fold(final List<EventDTO> records, final Set<Object> owned) {
+        final PersistentMap.Edit edit = edit();
+        for (final EventDTO record : records) {
+            fold(record, owned, edit);
+        }
+        edit.close();
+    }
+
+    /**
+     * Makes the maps editable under a new edit, which the caller closes once done.
+     */
+    private PersistentMap.Edit edit() {
+        final PersistentMap.Edit edit = new PersistentMap.Edit();
+        monthlySalary = monthlySalary.editable(edit);
+        monthlyAmount = monthlyAmount.editable(edit);
+        employees = employees.editable(edit);
+        periods = periods.editable(edit);
+        return edit;
+    }
+
+    private void coverPeriod(final YearMonth period) {
+        firstPeriod = firstPeriod == null || period.isBefore(firstPeriod) ? period : firstPeriod;
+        lastPeriod = lastPeriod == null || period.isAfter(lastPeriod) ? period : lastPeriod;
+    }
+
+    private void fold(final EventDTO record, final Set<Object> owned, final PersistentMap.Edit edit) {
+        final boolean payment = PAYMENT_EVENTS.contains(record.getEvent());
+        final long cents = MoneyUtil.toCents(record.getValue());
+        if ("SALARY".equals(record.getEvent())) {
+            writable(monthlySalary, record.getEventDate().getMonth().toString(), Total::new, Total::new, owned)
+                    .add(cents);
+        }
+        if (payment) {
+            writable(monthlyAmount, record.getEventDate().format(MONTH_FORMATTER), Total::new, Total::new, owned)
+                    .add(cents);
+        }
+        final EmployeeTotal employee = writable(employees, record.getEmpId(),
+                () -> new EmployeeTotal(record.getFirstName(), record.getLastName(), 0), EmployeeTotal::new, owned);
+        if (payment) {
+            employee.setPaidCents(employee.getPaidCents() + cents);
+        }
+        final YearMonth period = YearMonth.from(record.getEventDate());
+        writable(periods, period, PeriodTotals::new, PeriodTotals::new, owned)
+                .add(record.getEmpId(), "SALARY".equals(record.getEvent()), payment, cents, edit);
+        coverPeriod(period);
+        eventCount++;
+    }
+
+    private static <K, V> V writable(final Map<K, V> map, final K key, final Supplier<V> create,
+                                     final UnaryOperator<V> copy, final Set<Object> owned) {
+        final V current = map.get(key);
+        if (current != null && (owned == null || owned.contains(current))) {
+            return current;
+        }
+        final V value = current == null ? create.get() : copy.apply(current);
+        map.put(key, value);
+        if (owned != null) {
+            owned.add(value);
+        }
+        return value;
+    }
+
+    /**
+     * Running sum, in cents, and count of event values.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class Total {
+        private long cents;
+        private long count;
+
+        Total(final Total other) {
+            cents = other.cents;
+            count = other.count;
+        }
+
+        /**
+         * Returns the exact sum as an amount.
+         *
+         * @return the sum of the values
+         */
+        @JsonIgnore
+        public double getSum() {
+            return MoneyUtil.toAmount(cents);
+        }
+
+        void add(final long valueCents) {
+            cents += valueCents;
+            count++;
+        }
+
+        Total plus(final Total later) {
+            cents += later.cents;
+            count += later.count;
+            return this;
+        }
+    }
+
+    /**
+     * Checks that these aggregates carry the per-period partitions, which aggregates persisted
+     * by older versions lack.
+     *
+     * @return true if the periods cover the counted events
+     */
+    @JsonIgnore
+    public boolean isPartitioned() {
+        return eventCount == 0 || !periods.isEmpty();
+    }
+
+    /**
+     * Totals of the events dated in a single year-month. Only employees paid in the month
+     * have an entry in {@code paidCentsByEmployee}.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class PeriodTotals {
+        private Total salary = new Total();
+        private Total amount = new Total();
+        private PersistentMap<String, Long> paidCentsByEmployee = PersistentMap.empty();
+
+        PeriodTotals(final PeriodTotals other) {
+            salary = new Total(other.salary);
+            amount = new Total(other.amount);
+            paidCentsByEmployee = other.paidCentsByEmployee;
+        }
+
+        public void setPaidCentsByEmployee(final Map<String, Long> paidCentsByEmployee) {
+            this.paidCentsByEmployee = PersistentMap.copyOf(paidCentsByEmployee);
+        }
+
+        void add(final String empId, final boolean salaryEvent, final boolean payment, final long cents,
+                 final PersistentMap.Edit edit) {
+            paidCentsByEmployee = paidCentsByEmployee.editable(edit);
+            if (salaryEvent) {
+                salary.add(cents);
+            }
+            if (payment) {
+                amount.add(cents);
+                paidCentsByEmployee.merge(empId, cents, Long::sum);
+            }
+        }
+
+        PeriodTotals plus(final PeriodTotals later, final PersistentMap.Edit edit) {
+            salary.plus(later.salary);
+            amount.plus(later.amount);
+            paidCentsByEmployee = paidCentsByEmployee.editable(edit);
+            later.paidCentsByEmployee.forEach((empId, cents) -> paidCentsByEmployee.merge(empId, cents, Long::sum));
+            return this;
+        }
+    }
+
+    /**
+     * Running total paid to a single employee, with the name from their first event.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EmployeeTotal {
+        private String firstName;
+        private String lastName;
+        private long paidCents;
+
+        EmployeeTotal(final EmployeeTotal other) {
+            this(other.firstName, other.lastName, other.paidCents);
+        }
+
+        /**
+         * Returns the exact total paid as an amount.
+         *
+         * @return the total paid to the employee
+         */
+        @JsonIgnore
+        public double getTotalAmountPaid() {
+            return MoneyUtil.toAmount(paidCents);
+        }
+
+        EmployeeTotal plus(final EmployeeTotal later) {
+            paidCents += later.paidCents;
+            return this;
+        }
+    }
+
+    /**
+     * Folds a range of table rows, splitting it in halves until it is at most
+     * {@value #FOLD_CHUNK_ROWS} rows.
+     */
+    private static final class FoldTask extends RecursiveTask<ReportAggregates> {
+        private final EventTable table;
+        private final int fromRow;
+        private final int toRow;
+
+        FoldTask(final EventTable table, final int fromRow, final int toRow) {
+            this.table = table;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected ReportAggregates compute() {
+            if (toRow - fromRow <= FOLD_CHUNK_ROWS) {
+                final ReportAggregates chunk = new ReportAggregates();
+                final PersistentMap.Edit edit = chunk.edit();
+                for (int row = fromRow; row < toRow; row++) {
+                    chunk.fold(table.toEvent(row), null, edit);
+                }
+                edit.close();
+                return chunk;
+            }
+            final int middle = (fromRow + toRow) >>> 1;
+            final FoldTask later = new FoldTask(table, middle, toRow);
+            later.fork();
+            final ReportAggregates earlier = new FoldTask(table, fromRow, middle).compute();
+            earlier.merge(later.join());
+            return earlier;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.payrollsystem.store;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Index of committed sequence numbers, used to make ingestion idempotent.
+ * <p>
+ * Entries are a 64-bit fingerprint of the sequence number and the row holding it, kept in two
+ * flat open-addressing arrays (12 bytes per slot) rather than a {@code HashSet<String>}, so tens
+ * of millions of sequence numbers fit without an object per event. A fingerprint match is
+ * confirmed against the sequence number actually stored in the row, so a fingerprint
+ * collision never causes a genuine event to be dropped. Stores that do not hold the rows in
+ * memory check the fingerprint {@link #contains alone} first and read a row back only when it
+ * matches. Empty sequence numbers are not indexed.
+ */
+public class SequenceNoIndex {
+
+    private static final int NO_ROW = -1;
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] fingerprints;
+    private int[] rows;
+    private int size;
+
+    public SequenceNoIndex() {
+        this(1024);
+    }
+
+    private SequenceNoIndex(final int capacity) {
+        fingerprints = new long[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, NO_ROW);
+    }
+
+    /**
+     * Finds the row holding a sequence number.
+     *
+     * @param sequenceNo      the sequence number to look up
+     * @param sequenceNoOfRow resolves the sequence number stored in a row, to confirm fingerprint matches
+     * @return the first row holding the sequence number, or -1 if it is not indexed
+     */
+    public int find(final String sequenceNo, final IntFunction<String> sequenceNoOfRow) {
+        if (sequenceNo == null || sequenceNo.isEmpty()) {
+            return NO_ROW;
+        }
+        final long fingerprint = fingerprint(sequenceNo);
+        final int mask = rows.length - 1;
+        for (int slot = slot(fingerprint, mask); rows[slot] != NO_ROW; slot = (slot + 1) & mask) {
+            if (fingerprints[slot] == fingerprint && sequenceNo.equals(sequenceNoOfRow.apply(rows[slot]))) {
+                return rows[slot];
+            }
+        }
+        return NO_ROW;
+    }
+
+    /**
+     * Tells whether a sequence number may be indexed, going by its fingerprint alone. A miss
+     * is certain; a hit has to be confirmed with {@link #find}, which stores that no longer
+     * hold their rows in memory can then limit to the few sequence numbers that hit.
+     *
+     * @param sequenceNo the sequence number to look up
+     * @return true if a sequence number with the same fingerprint is indexed
+     */
+    public boolean contains(final String sequenceNo) {
+        if (sequenceNo == null || sequenceNo.isEmpty()) {
+            return false;
+        }
+        final long fingerprint = fingerprint(sequenceNo);
+        final int mask = rows.length - 1;
+        for (int slot = slot(fingerprint, mask); rows[slot] != NO_ROW; slot = (slot + 1) & mask) {
+            if (fingerprints[slot] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indexes the sequence number held in a row.
+     *
+     * @param sequenceNo the sequence number
+     * @param row        the row holding it
+     */
+    public void add(final String sequenceNo, final int row) {
+        if (sequenceNo == null || sequenceNo.isEmpty()) {
+            return;
+        }
+        if (size + 1 > rows.length * MAX_LOAD) {
+            resize();
+        }
+        insert(fingerprint(sequenceNo), row);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the heap held by the index.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return 48 + rows.length * (8L + 4L);
+    }
+
+    private void insert(final long fingerprint, final int row) {
+        final int mask = rows.length - 1;
+        int slot = slot(fingerprint, mask);
+        while (rows[slot] != NO_ROW) {
+            slot = (slot + 1) & mask;
+        }
+        fingerprints[slot] = fingerprint;
+        rows[slot] = row;
+    }
+
+    private void resize() {
+        final long[] oldFingerprints = fingerprints;
+        final int[] oldRows = rows;
+        fingerprints = new long[oldRows.length * 2];
+        rows = new int[oldRows.length * 2];
+        Arrays.fill(rows, NO_ROW);
+        for (int slot = 0; slot < oldRows.length; slot++) {
+            if (oldRows[slot] != NO_ROW) {
+                insert(oldFingerprints[slot], oldRows[slot]);
+            }
+        }
+    }
+
+    private static int slot(final long fingerprint, final int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished with a murmur-style mix so that sequential
+     * numbers spread evenly over the table.
+     */
+    private static long fingerprint(final String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
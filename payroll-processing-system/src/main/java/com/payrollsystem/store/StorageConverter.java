@@ -0,0 +1,68 @@
+package com.payrollsystem.store;
+
+import com.payrollsystem.dto.EventDTO;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Command line converter between the legacy JSON data file and the binary storage format.
+ * <pre>
+ * StorageConverter to-binary data/EmployeeData.json data/binary
+ * StorageConverter to-json data/binary data/EmployeeData.json
+ * </pre>
+ */
+public final class StorageConverter {
+
+    private StorageConverter() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: StorageConverter (to-binary <json file> <binary dir> | to-json <binary dir> <json file>)");
+            System.exit(1);
+        }
+        final Path source = Paths.get(args[1]);
+        final Path target = Paths.get(args[2]);
+        final long converted = switch (args[0]) {
+            case "to-binary" -> toBinary(source, target);
+            case "to-json" -> toJson(source, target);
+            default -> throw new IllegalArgumentException("Unknown conversion: " + args[0]);
+        };
+        System.out.println("Converted " + converted + " records from " + source + " to " + target);
+    }
+
+    /**
+     * Appends the records of a JSON array file to a binary storage directory.
+     *
+     * @param jsonFile  the JSON array file to read
+     * @param binaryDir the binary storage directory to write
+     * @return the number of converted records
+     * @throws IOException if either side cannot be read or written
+     */
+    public static long toBinary(final Path jsonFile, final Path binaryDir) throws IOException {
+        final List<EventDTO> records = LegacyJsonFile.read(jsonFile);
+        final BinaryEventLog binary = new BinaryEventLog(binaryDir);
+        binary.open();
+        binary.append(records);
+        return records.size();
+    }
+
+    /**
+     * Writes every record of a binary storage directory to a JSON array file.
+     *
+     * @param binaryDir the binary storage directory to read
+     * @param jsonFile  the JSON array file to write
+     * @return the number of converted records
+     * @throws IOException if either side cannot be read or written
+     */
+    public static long toJson(final Path binaryDir, final Path jsonFile) throws IOException {
+        final BinaryEventLog binary = new BinaryEventLog(binaryDir);
+        binary.open();
+        final List<EventDTO> records = binary.readAll();
+        LegacyJsonFile.write(jsonFile, records);
+        return records.size();
+    }
+}
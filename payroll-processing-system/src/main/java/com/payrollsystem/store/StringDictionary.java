@@ -0,0 +1,107 @@
+package com.payrollsystem.store;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int codes to repeated strings so columns can store them as primitives.
+ * <p>
+ * Codes are only ever appended, so a {@link #view()} taken by the writer can be handed to
+ * concurrent readers while encoding carries on. Views share the writer's lookup map, a
+ * concurrent one, and ignore the codes assigned after they were taken.
+ */
+public class StringDictionary {
+
+    private static final int NO_CODE = -1;
+
+    private final Map<String, Integer> codes;
+    private final boolean readOnly;
+    private String[] values = new String[16];
+    private int size;
+    private int nullCode = NO_CODE;
+    private long stringBytes;
+
+    public StringDictionary() {
+        codes = new ConcurrentHashMap<>();
+        readOnly = false;
+    }
+
+    private StringDictionary(final StringDictionary source) {
+        codes = source.codes;
+        readOnly = true;
+        values = source.values;
+        size = source.size;
+        nullCode = source.nullCode;
+        stringBytes = source.stringBytes;
+    }
+
+    /**
+     * Returns a read-only view of the codes assigned so far. It shares the value array, which
+     * later encodes never write below the current size, and the lookup map, whose later codes
+     * are at least the view's size and so are never returned by it.
+     *
+     * @return the view
+     */
+    public StringDictionary view() {
+        return readOnly ? this : new StringDictionary(this);
+    }
+
+    /**
+     * Returns the code for a value, assigning the next free code on first sight.
+     *
+     * @param value the string to encode
+     * @return the dense code of the value
+     */
+    public int encode(final String value) {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Cannot encode into a read-only view");
+        }
+        final int code = codeOf(value);
+        if (code != NO_CODE) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        if (value == null) {
+            nullCode = size;
+        } else {
+            codes.put(value, size);
+        }
+        stringBytes += value == null ? 0 : 40 + value.length();
+        return size++;
+    }
+
+    /**
+     * Looks up the code of a value without assigning one.
+     *
+     * @param value the string to look up
+     * @return the code of the value, or -1 if it has never been encoded
+     */
+    public int codeOf(final String value) {
+        if (value == null) {
+            return nullCode;
+        }
+        final Integer code = codes.get(value);
+        return code == null || code >= size ? NO_CODE : code;
+    }
+
+    public String decode(final int code) {
+        return values[code];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the heap held by the dictionary.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        return values.length * 4L + size * 48L + stringBytes;
+    }
+}
@@ -0,0 +1,33 @@
+package com.payrollsystem.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Utility class to read uploads that may or may not be gzip-compressed.
+ */
+public class CompressionUtil {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+
+    /**
+     * Wraps an input stream so it yields the uncompressed content. Gzip input, such as a
+     * {@code .csv.gz} file or a body sent with {@code Content-Encoding: gzip}, is recognised
+     * by its magic bytes and decompressed as it is read; anything else is passed through.
+     *
+     * @param input the raw input
+     * @return the uncompressed content
+     * @throws IOException if the input cannot be read
+     */
+    public static InputStream decompressIfGzipped(final InputStream input) throws IOException {
+        final BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        final boolean gzipped = buffered.read() == GZIP_MAGIC_FIRST && buffered.read() == GZIP_MAGIC_SECOND;
+        buffered.reset();
+        return gzipped ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+}
@@ -0,0 +1,34 @@
+package com.payrollsystem.util;
+
+/**
+ * Utility class for exact money arithmetic. Amounts are summed as whole cents in a
+ * {@code long}, so totals do not depend on the order they are added in and do not drift
+ * the way running {@code double} sums do.
+ */
+public final class MoneyUtil {
+
+    private static final double CENTS_PER_UNIT = 100.0;
+
+    private MoneyUtil() {
+    }
+
+    /**
+     * Converts an amount to whole cents, rounding half away from zero.
+     *
+     * @param amount the amount, as parsed from an upload
+     * @return the amount in cents
+     */
+    public static long toCents(final double amount) {
+        return amount < 0 ? -Math.round(-amount * CENTS_PER_UNIT) : Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * Converts whole cents back to the nearest amount, for report responses.
+     *
+     * @param cents the amount in cents
+     * @return the amount
+     */
+    public static double toAmount(final long cents) {
+        return cents / CENTS_PER_UNIT;
+    }
+}
@@ -0,0 +1,108 @@
+package com.payrollsystem;
+
+import com.payrollsystem.dto.AggregationRowDTO;
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.exception.InvalidQueryException;
+import com.payrollsystem.store.AggregationQuery;
+import com.payrollsystem.store.EventColumns;
+import com.payrollsystem.store.EventIndex;
+import com.payrollsystem.store.PeriodRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AggregationQueryTests {
+
+    private final List<EventDTO> events = new ArrayList<>();
+    private final EventColumns table = new EventColumns();
+    private final EventIndex index = new EventIndex();
+
+    @BeforeEach
+    public void loadEvents() {
+        final String[] types = {"SALARY", "BONUS", "REIMBURSEMENT", "ONBOARD"};
+        final String[] designations = {"Engineer", "Manager", null};
+        for (int i = 0; i < 5000; i++) {
+            events.add(new EventDTO("s" + i, "emp" + i % 37, "John", "Doe", designations[i % 3], types[i % 4],
+                    100 + i % 91 + 0.05, LocalDate.of(2022, 1, 1).plusDays(i % 700), ""));
+        }
+        table.addAll(events);
+        index.addAll(0, events);
+    }
+
+    @Test
+    public void testSumsByDesignationAndQuarter() {
+        final List<AggregationRowDTO> rows = AggregationQuery.of("BONUS", null, null, PeriodRange.of(2022, null, null),
+                List.of("designation", "quarter"), null).run(table, index);
+
+        final Map<String, Long> expected = events.stream()
+                .filter(e -> e.getEvent().equals("BONUS") && e.getEventDate().getYear() == 2022)
+                .collect(Collectors.groupingBy(e -> e.getDesignation() + "/" + e.getEventDate().getYear() + "-Q"
+                                + ((e.getEventDate().getMonthValue() - 1) / 3 + 1),
+                        Collectors.summingLong(e -> Math.round(e.getValue() * 100))));
+        assertEquals(expected.size(), rows.size());
+        for (final AggregationRowDTO row : rows) {
+            final String key = row.getGroup().get("designation") + "/" + row.getGroup().get("quarter");
+            assertEquals(expected.get(key) / 100.0, row.getValue(), key);
+        }
+        assertEquals("2022-Q1", rows.get(0).getGroup().get("quarter"));
+    }
+
+    @Test
+    public void testEveryAggregateOfOneEmployeeByMonth() {
+        final YearMonth month = YearMonth.of(2023, 3);
+        final List<EventDTO> matching = events.stream()
+                .filter(e -> e.getEmpId().equals("emp5") && YearMonth.from(e.getEventDate()).equals(month))
+                .toList();
+        final PeriodRange range = PeriodRange.of(null, month, month);
+        final double sum = matching.stream().mapToLong(e -> Math.round(e.getValue() * 100)).sum() / 100.0;
+
+        assertEquals(sum, single("emp5", range, "sum").getValue());
+        assertEquals(matching.size(), single("emp5", range, "count").getValue());
+        assertEquals(matching.stream().mapToDouble(EventDTO::getValue).min().orElseThrow(),
+                single("emp5", range, "min").getValue());
+        assertEquals(matching.stream().mapToDouble(EventDTO::getValue).max().orElseThrow(),
+                single("emp5", range, "max").getValue());
+        assertEquals(sum / matching.size(), single("emp5", range, "avg").getValue(), 1e-9);
+        assertEquals("2023-03", single("emp5", range, "sum").getGroup().get("month"));
+    }
+
+    @Test
+    public void testCountsEverythingWithoutFiltersAndSkipsUnknownValues() {
+        final List<AggregationRowDTO> byYear = AggregationQuery.of(null, null, null, PeriodRange.ALL,
+                List.of("year"), "count").run(table, index);
+        assertEquals(2, byYear.size());
+        assertEquals(5000, byYear.get(0).getCount() + byYear.get(1).getCount());
+        assertEquals(1, AggregationQuery.of(null, null, null, PeriodRange.ALL, null, "count")
+                .run(table, index).size());
+        assertEquals(List.of(), AggregationQuery.of("PROMOTION", null, null, PeriodRange.ALL, List.of("empId"), null)
+                .run(table, index));
+        assertEquals(37, AggregationQuery.of(null, null, null, PeriodRange.ALL, List.of("empId", "event", "designation"),
+                "max").run(table, index).stream().map(row -> row.getGroup().get("empId")).distinct().count());
+    }
+
+    @Test
+    public void testRejectsUnknownDimensionsAndFunctions() {
+        assertThrows(InvalidQueryException.class, () -> AggregationQuery.of(null, null, null, PeriodRange.ALL,
+                List.of("weekday"), null));
+        assertThrows(InvalidQueryException.class, () -> AggregationQuery.of(null, null, null, PeriodRange.ALL,
+                null, "median"));
+        assertThrows(InvalidQueryException.class, () -> AggregationQuery.of(null, null, null, PeriodRange.ALL,
+                List.of("event", "empId", "designation", "month"), null));
+    }
+
+    private AggregationRowDTO single(final String empId, final PeriodRange range, final String aggregate) {
+        final List<AggregationRowDTO> rows = AggregationQuery.of(null, empId, null, range, List.of("month"), aggregate)
+                .run(table, index);
+        assertEquals(1, rows.size());
+        return rows.get(0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.payrollsystem;
+
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.store.BinaryEventLog;
+import com.payrollsystem.store.EventTable;
+import com.payrollsystem.store.LegacyJsonFile;
+import com.payrollsystem.store.StorageConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BinaryEventLogTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAppendReopenAndScan() throws Exception {
+        final Path dir = tempDir.resolve("binary");
+        final BinaryEventLog log = new BinaryEventLog(dir);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY", 5000.25, "Jan, salary")));
+        log.append(List.of(event("2", "emp102", "BONUS", 700, null), event("3", "emp101", "EXIT", 0, "Left")));
+
+        final BinaryEventLog reopened = new BinaryEventLog(dir);
+        reopened.open();
+        final EventTable table = reopened.table();
+        assertEquals(3, table.size());
+        assertEquals("BONUS", table.eventTypes().decode(table.eventTypeCode(1)));
+        assertEquals(table.empIdCode(0), table.empIdCode(2));
+        assertEquals(5000.25, table.value(0));
+        assertEquals(event("1", "emp101", "SALARY", 5000.25, "Jan, salary"), table.toEvent(0));
+        assertEquals(event("2", "emp102", "BONUS", 700, null), reopened.readAll().get(1));
+    }
+
+    @Test
+    public void testDropsTornTrailingRecord() throws Exception {
+        final Path dir = tempDir.resolve("binary");
+        final BinaryEventLog log = new BinaryEventLog(dir);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY", 10, "a"), event("2", "emp101", "SALARY", 20, "b")));
+        try (final FileChannel records = FileChannel.open(dir.resolve("records.bin"), StandardOpenOption.WRITE)) {
+            records.truncate(records.size() - 5);
+        }
+
+        final BinaryEventLog reopened = new BinaryEventLog(dir);
+        reopened.open();
+        reopened.append(List.of(event("3", "emp103", "BONUS", 30, "c")));
+        assertEquals(List.of("1", "3"), reopened.readAll().stream().map(EventDTO::getSequenceNo).toList());
+    }
+
+    @Test
+    public void testConvertsToAndFromJson() throws Exception {
+        final Path json = tempDir.resolve("EmployeeData.json");
+        final List<EventDTO> records = List.of(event("1", "emp101", "ONBOARD", 0, "Joined"),
+                event("2", "emp101", "SALARY", 1234.5, "\"quoted\""));
+        LegacyJsonFile.write(json, records);
+
+        assertEquals(2, StorageConverter.toBinary(json, tempDir.resolve("binary")));
+        final Path roundTrip = tempDir.resolve("roundtrip.json");
+        assertEquals(2, StorageConverter.toJson(tempDir.resolve("binary"), roundTrip));
+        assertEquals(records, LegacyJsonFile.read(roundTrip));
+    }
+
+    private static EventDTO event(final String sequenceNo, final String empId, final String type,
+                                  final double value, final String notes) {
+        return new EventDTO(sequenceNo, empId, "John", "Doe", "Engineer", type, value,
+                LocalDate.of(2023, 1, 15), notes);
+    }
+}
@@ -0,0 +1,107 @@
+package com.payrollsystem;
+
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.store.CompressedEventLog;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompressedEventLogTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAppendReopenAndReadAcrossBlocks() throws Exception {
+        final Path dir = tempDir.resolve("compressed");
+        final CompressedEventLog log = new CompressedEventLog(dir);
+        log.open();
+        final List<EventDTO> records = events(0, 20000);
+        log.append(records.subList(0, 3));
+        log.append(records.subList(3, records.size()));
+
+        final CompressedEventLog reopened = new CompressedEventLog(dir);
+        reopened.open();
+        assertEquals(records, reopened.readAll());
+        assertEquals(records.subList(9000, records.size()), reopened.readFrom(9000));
+        final EventTable table = reopened.table();
+        assertEquals(20000, table.size());
+        assertEquals(records.get(12345), table.toEvent(12345));
+    }
+
+    @Test
+    public void testDropsTornTrailingAppend() throws Exception {
+        final Path dir = tempDir.resolve("compressed");
+        final CompressedEventLog log = new CompressedEventLog(dir);
+        log.open();
+        log.append(events(0, 2));
+        log.append(events(2, 2));
+        try (final FileChannel tail = FileChannel.open(dir.resolve("tail.dat"), StandardOpenOption.WRITE)) {
+            tail.truncate(tail.size() - 5);
+        }
+
+        final CompressedEventLog reopened = new CompressedEventLog(dir);
+        reopened.open();
+        reopened.append(events(10, 1));
+        assertEquals(List.of("s0", "s1", "s10"), reopened.readAll().stream().map(EventDTO::getSequenceNo).toList());
+    }
+
+    @Test
+    public void testSmallAppendsFillWholeBlocks() throws Exception {
+        final List<EventDTO> records = events(0, 9000);
+        final Path dir = tempDir.resolve("compressed");
+        final CompressedEventLog log = new CompressedEventLog(dir);
+        log.open();
+        for (int from = 0; from < records.size(); from += 1000) {
+            log.append(records.subList(from, from + 1000));
+        }
+        final CompressedEventLog single = new CompressedEventLog(tempDir.resolve("single"));
+        single.open();
+        single.append(records.subList(0, 8192));
+
+        assertEquals(Files.size(tempDir.resolve("single").resolve("blocks.dat")),
+                Files.size(dir.resolve("blocks.dat")));
+        assertEquals(records.subList(8000, 9000), log.readRange(8000, 9000));
+        final CompressedEventLog reopened = new CompressedEventLog(dir);
+        reopened.open();
+        assertEquals(records, reopened.readAll());
+        reopened.append(events(9000, 1));
+        assertEquals("s9000", reopened.readFrom(9000).get(0).getSequenceNo());
+    }
+
+    @Test
+    public void testIsSeveralTimesSmallerThanNdjson() throws Exception {
+        final List<EventDTO> records = events(0, 50000);
+        final CompressedEventLog compressed = new CompressedEventLog(tempDir.resolve("compressed"));
+        compressed.open();
+        compressed.append(records);
+        final EventLog ndjson = new EventLog(tempDir.resolve("events"), Long.MAX_VALUE);
+        ndjson.open();
+        ndjson.append(records);
+
+        assertTrue(compressed.sizeInBytes() * 4 < ndjson.sizeInBytes(),
+                compressed.sizeInBytes() + " vs " + ndjson.sizeInBytes());
+    }
+
+    private static List<EventDTO> events(final int from, final int count) {
+        final List<EventDTO> events = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            events.add(new EventDTO("s" + i, "emp" + i % 500, "John", "Doe", i % 3 == 0 ? "Engineer" : null,
+                    i % 10 == 0 ? "BONUS" : "SALARY", 1000 + i % 250 + 0.5, LocalDate.of(2023, 1 + i % 12, 15),
+                    i % 7 == 0 ? "Paid, on time" : ""));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,145 @@
+package com.payrollsystem;
+
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.util.ObjectMapperUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventLogTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAppendAndReadAll() throws Exception {
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1024 * 1024);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY")));
+        log.append(List.of(event("2", "emp102", "BONUS"), event("3", "emp103", "EXIT")));
+
+        final List<EventDTO> records = log.readAll();
+        assertEquals(3, records.size());
+        assertEquals("emp101", records.get(0).getEmpId());
+        assertEquals("EXIT", records.get(2).getEvent());
+        assertEquals(LocalDate.of(2023, 1, 15), records.get(1).getEventDate());
+    }
+
+    @Test
+    public void testRollsOverToNewSegment() throws Exception {
+        final Path dir = tempDir.resolve("events");
+        final EventLog log = new EventLog(dir, 1);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY")));
+        log.append(List.of(event("2", "emp102", "SALARY")));
+
+        try (final Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+        final EventLog reopened = new EventLog(dir, 1);
+        reopened.open();
+        assertEquals(2, reopened.readAll().size());
+    }
+
+    @Test
+    public void testSkipsTornTrailingLine() throws Exception {
+        final Path dir = tempDir.resolve("events");
+        final EventLog log = new EventLog(dir, 1024 * 1024);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY")));
+        Files.writeString(dir.resolve("segment-00000001.ndjson"), "{\"sequenceNo\":\"2\",\"emp",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertEquals(1, log.readAll().size());
+    }
+
+    @Test
+    public void testFailsOnUnreadableRecordInsteadOfRenumbering() throws Exception {
+        final Path dir = tempDir.resolve("events");
+        final EventLog log = new EventLog(dir, 1024 * 1024);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY")));
+        Files.writeString(dir.resolve("segment-00000001.ndjson"), "{\"sequenceNo\":\"2\",\"emp\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        log.append(List.of(event("3", "emp103", "SALARY")));
+
+        final EventLog reopened = new EventLog(dir, 1024 * 1024);
+        reopened.open();
+        assertEquals("1", reopened.readRange(0, 1).get(0).getSequenceNo());
+        final IOException e = assertThrows(IOException.class, reopened::readAll);
+        assertTrue(e.getMessage().contains("line 2 of segment-00000001.ndjson"), e.getMessage());
+    }
+
+    @Test
+    public void testReopenCutsTornTrailingLineBeforeAppending() throws Exception {
+        final Path dir = tempDir.resolve("events");
+        final EventLog log = new EventLog(dir, 1024 * 1024);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY")));
+        Files.writeString(dir.resolve("segment-00000001.ndjson"), "{\"sequenceNo\":\"2\",\"emp",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        final EventLog reopened = new EventLog(dir, 1024 * 1024);
+        reopened.open();
+        reopened.append(List.of(event("3", "emp103", "BONUS")));
+
+        final List<EventDTO> records = reopened.readAll();
+        assertEquals(2, records.size());
+        assertEquals("3", records.get(1).getSequenceNo());
+    }
+
+    @Test
+    public void testCompactionKeepsRecordNumbers() throws Exception {
+        final Path dir = tempDir.resolve("events");
+        final EventLog log = new EventLog(dir, 1);
+        log.open();
+        log.append(List.of(event("1", "emp101", "SALARY"), event("2", "emp101", "BONUS")));
+        log.append(List.of(event("3", "emp102", "SALARY")));
+        log.append(List.of(event("4", "emp103", "SALARY")));
+
+        assertEquals(0L, log.compactBefore(1));
+        assertEquals(2L, log.compactBefore(2));
+        assertEquals(3L, log.compactBefore(10));
+
+        final EventLog reopened = new EventLog(dir, 1);
+        reopened.open();
+        assertEquals(3L, reopened.firstRecord());
+        assertEquals("4", reopened.readFrom(3).get(0).getSequenceNo());
+        assertEquals(1, reopened.readAll().size());
+        reopened.append(List.of(event("5", "emp104", "SALARY")));
+        assertEquals("5", reopened.readFrom(4).get(0).getSequenceNo());
+    }
+
+    @Test
+    public void testMigratesLegacyJsonFileOnce() throws Exception {
+        final Path legacy = tempDir.resolve("EmployeeData.json");
+        ObjectMapperUtil.getMapper().writeValue(legacy.toFile(),
+                List.of(event("1", "emp101", "ONBOARD"), event("2", "emp101", "SALARY")));
+
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1024 * 1024);
+        log.open();
+        log.migrateFrom(legacy);
+        log.migrateFrom(legacy);
+
+        assertEquals(2, log.readAll().size());
+        assertEquals(true, Files.exists(legacy));
+    }
+
+    private static EventDTO event(final String sequenceNo, final String empId, final String type) {
+        return new EventDTO(sequenceNo, empId, "John", "Doe", "Engineer", type, 1000.0,
+                LocalDate.of(2023, 1, 15), "note, with comma");
+    }
+}
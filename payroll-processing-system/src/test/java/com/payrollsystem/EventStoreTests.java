@@ -0,0 +1,386 @@
+package com.payrollsystem;
+
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.store.CommitResult;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventStore;
+import com.payrollsystem.store.EventTable;
+import com.payrollsystem.store.IntList;
+import com.payrollsystem.store.PeriodRange;
+import com.payrollsystem.store.ReportAggregates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EventStoreTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testAggregatesFollowCommits() throws Exception {
+        final EventStore store = openStore();
+        store.append(List.of(
+                event("1", "emp101", "ONBOARD", 0, LocalDate.of(2023, 1, 2)),
+                event("2", "emp101", "SALARY", 5000, LocalDate.of(2023, 1, 31)),
+                event("3", "emp102", "BONUS", 700, LocalDate.of(2023, 2, 10))));
+
+        final ReportAggregates aggregates = store.readAggregates(a -> a);
+        assertEquals(2, aggregates.getEmployees().size());
+        assertEquals(5000.0, aggregates.getMonthlySalary().get("JANUARY").getSum());
+        assertEquals(1, aggregates.getMonthlySalary().get("JANUARY").getCount());
+        assertEquals(700.0, aggregates.getMonthlyAmount().get("02").getSum());
+        assertEquals(5000.0, aggregates.getEmployees().get("emp101").getTotalAmountPaid());
+        assertEquals(3, (int) store.read(EventTable::size));
+        assertEquals(event("3", "emp102", "BONUS", 700, LocalDate.of(2023, 2, 10)), store.read(c -> c.toEvent(2)));
+    }
+
+    @Test
+    public void testRestartAppliesOnlyLogTail() throws Exception {
+        final EventStore store = openStore();
+        store.append(List.of(event("1", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 1))));
+        assertEquals(1L, store.checkpointAggregates());
+
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1024 * 1024);
+        log.open();
+        log.append(List.of(event("2", "emp101", "SALARY", 50, LocalDate.of(2023, 3, 2))));
+
+        final EventStore restarted = openStore();
+        assertEquals(150.0, restarted.readAggregates(a -> a.getMonthlySalary().get("MARCH").getSum()));
+        assertEquals(2L, restarted.readAggregates(ReportAggregates::getEventCount));
+    }
+
+    @Test
+    public void testFallsBackToLogPastMemoryBudget() throws Exception {
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1024 * 1024);
+        log.open();
+        final EventStore store = new EventStore(log, tempDir.resolve("aggregates.json"), 1);
+        store.load();
+        store.append(List.of(event("1", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 1))));
+
+        assertEquals(false, store.isResident());
+        assertEquals(1, (int) store.read(EventTable::size));
+        assertEquals(1L, store.checkpointAggregates());
+        assertEquals(true, Files.exists(tempDir.resolve("aggregates.json")));
+    }
+
+    @Test
+    public void testAggregatesAreCheckpointedEveryFewEvents() throws Exception {
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1024 * 1024);
+        log.open();
+        final EventStore store = new EventStore(log, tempDir.resolve("aggregates.json"), null, Long.MAX_VALUE, 3);
+        store.load();
+        store.append(List.of(event("1", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 1))));
+        store.append(List.of(event("2", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 2))));
+        assertEquals(false, Files.exists(tempDir.resolve("aggregates.json")));
+
+        store.append(List.of(event("3", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 3)),
+                event("4", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 4))));
+        assertEquals(-1L, store.checkpointAggregates());
+        store.append(List.of(event("5", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 5))));
+
+        final EventStore restarted = openStore();
+        assertEquals(500.0, restarted.readAggregates(a -> a.getMonthlySalary().get("MARCH").getSum()));
+        assertEquals(5L, restarted.readAggregates(ReportAggregates::getEventCount));
+    }
+
+    @Test
+    public void testCommitSucceedsWhenAggregatesCannotBePersisted() throws Exception {
+        Files.createDirectories(tempDir.resolve("aggregates.json").resolve("blocked"));
+        final EventStore store = openStore();
+
+        assertEquals(0, store.append(List.of(event("1", "emp101", "SALARY", 100, LocalDate.of(2023, 3, 1))))
+                .getDuplicateCount());
+        assertEquals(1L, store.getEventCount());
+        assertEquals(-1L, store.checkpointAggregates());
+        assertEquals(100.0, openStore().readAggregates(a -> a.getMonthlySalary().get("MARCH").getSum()));
+    }
+
+    @Test
+    public void testIndexesFollowCommitsAndRebuildOnLoad() throws Exception {
+        openStore().append(List.of(
+                event("1", "emp101", "ONBOARD", 0, LocalDate.of(2023, 1, 2)),
+                event("2", "emp101", "SALARY", 5000, LocalDate.of(2023, 1, 31))));
+        final EventStore store = openStore();
+        store.append(List.of(
+                event("3", "emp102", "ONBOARD", 0, LocalDate.of(2023, 2, 10)),
+                event("4", "emp102", "EXIT", 0, LocalDate.of(2023, 2, 28))));
+
+        final IntList onboards = store.readIndexed((table, index) -> index.rowsOfEventType("ONBOARD"));
+        assertEquals(2, onboards.size());
+        assertEquals(0, onboards.get(0));
+        assertEquals(2, onboards.get(1));
+        assertEquals(2, (int) store.readIndexed((table, index) -> index.rowsOfEmployee("emp102").size()));
+        assertEquals("EXIT", store.readIndexed((table, index) ->
+                table.toEvent(index.rowsInMonth(YearMonth.of(2023, 2)).get(1)).getEvent()));
+        assertEquals(0, (int) store.readIndexed((table, index) -> index.rowsOfEventType("BONUS").size()));
+    }
+
+    @Test
+    public void testPeriodPartitionsSurviveRestart() throws Exception {
+        openStore().append(List.of(
+                event("1", "emp101", "SALARY", 100, LocalDate.of(2022, 1, 31)),
+                event("2", "emp101", "SALARY", 200, LocalDate.of(2023, 1, 31)),
+                event("3", "emp102", "BONUS", 50, LocalDate.of(2023, 2, 1))));
+
+        final EventStore store = openStore();
+        final PeriodRange year2023 = PeriodRange.of(2023, null, null);
+        assertEquals(1L, (long) store.readAggregates(a -> a.periodsIn(year2023).firstEntry().getValue().getSalary().getCount()));
+        assertEquals(200.0, store.readAggregates(a -> a.getPeriods().get(YearMonth.of(2023, 1)).getSalary().getSum()));
+        assertEquals(2, (int) store.readAggregates(a -> a.periodsIn(year2023).size()));
+        assertEquals(2, (int) store.readIndexed((table, index) -> index.rowsInRange(year2023).size()));
+        assertEquals(1, (int) store.readIndexed((table, index) ->
+                index.rowsInRange(PeriodRange.of(null, null, YearMonth.of(2022, 12))).size()));
+    }
+
+    @Test
+    public void testConcurrentCommitsAreAllDurable() throws Exception {
+        final EventStore store = openStore();
+        final ExecutorService uploaders = Executors.newFixedThreadPool(8);
+        final List<Future<Long>> commits = new ArrayList<>();
+        for (int batch = 0; batch < 40; batch++) {
+            final List<EventDTO> records = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                records.add(event(batch + "-" + i, "emp" + batch, "SALARY", 10, LocalDate.of(2023, 4, 30)));
+            }
+            commits.add(uploaders.submit(() -> store.append(records).getBytesWritten()));
+        }
+        long bytesWritten = 0;
+        for (final Future<Long> commit : commits) {
+            bytesWritten += commit.get();
+        }
+        uploaders.shutdown();
+
+        assertEquals(1000, (int) store.read(EventTable::size));
+        assertEquals(store.getStorageBytes(), bytesWritten);
+        assertEquals(1000, (int) store.readIndexed((table, index) -> index.rowsOfEventType("SALARY").size()));
+        final EventStore restarted = openStore();
+        assertEquals(1000L, restarted.getEventCount());
+        assertEquals(10000.0, restarted.readAggregates(a -> a.getMonthlySalary().get("APRIL").getSum()));
+    }
+
+    @Test
+    public void testQueriesKeepTheViewTheyStartedWith() throws Exception {
+        final EventStore store = openStore();
+        store.append(List.of(event("1", "emp101", "SALARY", 100, LocalDate.of(2023, 5, 31))));
+        final EventTable table = store.read(t -> t);
+        final IntList salaries = store.readIndexed((t, index) -> index.rowsOfEventType("SALARY"));
+        final ReportAggregates aggregates = store.readAggregates(a -> a);
+
+        final List<EventDTO> more = new ArrayList<>();
+        for (int i = 2; i <= 2000; i++) {
+            more.add(event(String.valueOf(i), "emp" + i % 7, "SALARY", 100, LocalDate.of(2023, 5, 31)));
+        }
+        store.append(more);
+
+        assertEquals(1, table.size());
+        assertEquals(1, salaries.size());
+        assertEquals(100.0, aggregates.getMonthlySalary().get("MAY").getSum());
+        assertEquals(1L, aggregates.getEventCount());
+        assertEquals(2000, (int) store.read(EventTable::size));
+        assertEquals(200000.0, store.readAggregates(a -> a.getMonthlySalary().get("MAY").getSum()));
+    }
+
+    @Test
+    public void testReadsDuringCommitsSeeWholeBatches() throws Exception {
+        final EventStore store = openStore();
+        final ExecutorService uploader = Executors.newSingleThreadExecutor();
+        final Future<?> uploads = uploader.submit(() -> {
+            for (int batch = 0; batch < 50; batch++) {
+                final List<EventDTO> records = new ArrayList<>();
+                for (int i = 0; i < 40; i++) {
+                    records.add(event(batch + "-" + i, "emp" + i, "SALARY", 1, LocalDate.of(2023, 7, 31)));
+                }
+                store.append(records);
+            }
+            return null;
+        });
+        while (!uploads.isDone()) {
+            final int[] seen = store.readIndexed((table, index) ->
+                    new int[]{table.size(), index.rowsOfEventType("SALARY").size()});
+            assertEquals(0, seen[0] % 40);
+            assertEquals(seen[0], seen[1]);
+        }
+        uploads.get();
+        uploader.shutdown();
+        assertEquals(2000, (int) store.read(EventTable::size));
+    }
+
+    @Test
+    public void testMoneyTotalsAreExactAndRebuildInParallel() throws Exception {
+        final EventStore store = openStore();
+        final List<EventDTO> records = new ArrayList<>();
+        for (int i = 0; i < 70000; i++) {
+            records.add(event(String.valueOf(i), "emp" + i % 300, i % 5 == 0 ? "BONUS" : "SALARY",
+                    i % 2 == 0 ? 0.1 : 19.99, LocalDate.of(2023, 1 + i % 12, 28)));
+        }
+        store.append(records);
+        final ReportAggregates committed = store.readAggregates(a -> a);
+        assertEquals(703150.0, committed.getMonthlyAmount().values().stream()
+                .mapToDouble(ReportAggregates.Total::getSum).sum(), 1e-6);
+        assertEquals(4677.66, committed.getEmployees().get("emp7").getTotalAmountPaid());
+
+        Files.deleteIfExists(tempDir.resolve("aggregates.json"));
+        final ReportAggregates rebuilt = openStore().readAggregates(a -> a);
+        assertEquals(committed, rebuilt);
+        assertEquals(70000L, rebuilt.getEventCount());
+    }
+
+    @Test
+    public void testSkipsAlreadyIngestedSequenceNumbers() throws Exception {
+        final List<EventDTO> upload = List.of(
+                event("1", "emp101", "SALARY", 100, LocalDate.of(2023, 5, 31)),
+                event("2", "emp102", "SALARY", 200, LocalDate.of(2023, 5, 31)));
+        final EventStore store = openStore();
+        assertEquals(0, store.append(upload).getDuplicateCount());
+
+        final CommitResult retried = store.append(List.of(upload.get(1),
+                event("3", "emp103", "SALARY", 300, LocalDate.of(2023, 5, 31)),
+                event("3", "emp103", "SALARY", 300, LocalDate.of(2023, 5, 31))));
+        assertEquals(2, retried.getDuplicateCount());
+        assertEquals(1, retried.countDuplicates(0, 1));
+        assertEquals(0, retried.countDuplicates(1, 2));
+
+        final EventStore restarted = openStore();
+        assertEquals(2, restarted.append(upload).getDuplicateCount());
+        assertEquals(3L, restarted.getEventCount());
+        assertEquals(600.0, restarted.readAggregates(a -> a.getMonthlySalary().get("MAY").getSum()));
+    }
+
+    @Test
+    public void testRestartsFromSnapshotAndCompactedLog() throws Exception {
+        final EventStore store = openSnapshottingStore(Long.MAX_VALUE);
+        for (int day = 1; day <= 3; day++) {
+            store.append(List.of(event("s" + day, "emp101", "SALARY", 100, LocalDate.of(2023, 6, day))));
+        }
+        assertEquals(3L, store.snapshot(1, true));
+        assertEquals(-1L, store.snapshot(1, true));
+        store.append(List.of(event("s4", "emp102", "SALARY", 50, LocalDate.of(2023, 6, 4))));
+        try (final Stream<Path> segments = Files.list(tempDir.resolve("events"))) {
+            assertEquals(2, segments.filter(p -> p.toString().endsWith(".ndjson")).count());
+        }
+
+        final EventStore restarted = openSnapshottingStore(Long.MAX_VALUE);
+        assertEquals(4L, restarted.getEventCount());
+        assertEquals(3L, restarted.getSnapshotEvents());
+        assertEquals("s4", restarted.read(table -> table.sequenceNo(3)));
+        assertEquals(350.0, restarted.readAggregates(a -> a.getMonthlySalary().get("JUNE").getSum()));
+        assertEquals(1, restarted.append(List.of(event("s2", "emp101", "SALARY", 100, LocalDate.of(2023, 6, 2))))
+                .getDuplicateCount());
+
+        final EventStore overBudget = openSnapshottingStore(1);
+        assertEquals(false, overBudget.isResident());
+        assertEquals(4, (int) overBudget.read(EventTable::size));
+    }
+
+    @Test
+    public void testKeepsEventsWithCollidingFingerprintsPastMemoryBudget() throws Exception {
+        // The two sequence numbers share a 64-bit FNV-1a hash, and so a fingerprint
+        final EventStore store = openSnapshottingStore(1);
+        store.append(List.of(event("8yn0iYCKYHlIj4-BwPqk", "emp101", "SALARY", 100, LocalDate.of(2023, 6, 1))));
+        assertEquals(false, store.isResident());
+
+        final CommitResult result = store.append(List.of(
+                event("GReLUrM4wMqfg9yzV3KQ", "emp102", "SALARY", 200, LocalDate.of(2023, 6, 2))));
+        assertEquals(0, result.getDuplicateCount());
+        assertEquals(2L, store.getEventCount());
+        assertEquals(1, store.append(List.of(
+                event("GReLUrM4wMqfg9yzV3KQ", "emp102", "SALARY", 200, LocalDate.of(2023, 6, 2)))).getDuplicateCount());
+    }
+
+    @Test
+    public void testIgnoresSnapshotThatFailsItsCrc() throws Exception {
+        final EventStore store = openSnapshottingStore(Long.MAX_VALUE);
+        for (int day = 1; day <= 3; day++) {
+            store.append(List.of(event("c" + day, "emp101", "SALARY", 100, LocalDate.of(2023, 6, day))));
+        }
+        assertEquals(3L, store.snapshot(1, false));
+        final Path snapshot = tempDir.resolve("snapshot.bin");
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        final EventStore restarted = openSnapshottingStore(Long.MAX_VALUE);
+        assertEquals(0L, restarted.getSnapshotEvents());
+        assertEquals(3L, restarted.getEventCount());
+        assertEquals("c3", restarted.read(table -> table.sequenceNo(2)));
+    }
+
+    @Test
+    public void testPagesThroughSnapshotAndLogPastMemoryBudget() throws Exception {
+        final EventStore store = openSnapshottingStore(Long.MAX_VALUE);
+        for (int batch = 0; batch < 3; batch++) {
+            final List<EventDTO> events = new ArrayList<>();
+            for (int i = 0; i < 15_000; i++) {
+                final int n = batch * 15_000 + i;
+                events.add(event("p" + n, "emp" + n % 40, "SALARY", 1, LocalDate.of(2023, 1, 1).plusDays(n % 365)));
+            }
+            store.append(events);
+            if (batch == 1) {
+                assertEquals(30_000L, store.snapshot(1, true));
+            }
+        }
+
+        final EventStore overBudget = openSnapshottingStore(1);
+        assertEquals(false, overBudget.isResident());
+        assertEquals("p0", overBudget.read(table -> table.sequenceNo(0)));
+        assertEquals("p20000", overBudget.read(table -> table.toEvent(20_000).getSequenceNo()));
+        assertEquals("p44999", overBudget.read(table -> table.sequenceNo(44_999)));
+        assertEquals(45_000.0, overBudget.read(table -> {
+            double sum = 0;
+            for (int row = 0; row < table.size(); row++) {
+                sum += table.value(row);
+            }
+            return sum;
+        }));
+        assertEquals(1125, (int) overBudget.readIndexed((table, index) -> {
+            final int code = table.empIds().codeOf("emp7");
+            final IntList rows = index.rowsOfEmployee("emp7");
+            int matches = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                matches += table.empIdCode(rows.get(i)) == code ? 1 : 0;
+            }
+            return matches;
+        }));
+
+        final CommitResult result = overBudget.append(List.of(
+                event("p10", "emp10", "SALARY", 1, LocalDate.of(2023, 1, 11)),
+                event("p45000", "emp40", "SALARY", 1, LocalDate.of(2024, 1, 1))));
+        assertEquals(1, result.getDuplicateCount());
+        assertEquals("emp40", overBudget.read(table -> table.empIds().decode(table.empIdCode(45_000))));
+    }
+
+    private EventStore openSnapshottingStore(final long memoryBudgetBytes) throws Exception {
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1);
+        log.open();
+        final EventStore store = new EventStore(log, tempDir.resolve("aggregates.json"),
+                tempDir.resolve("snapshot.bin"), memoryBudgetBytes);
+        store.load();
+        return store;
+    }
+
+    private EventStore openStore() throws Exception {
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1024 * 1024);
+        log.open();
+        final EventStore store = new EventStore(log, tempDir.resolve("aggregates.json"), Long.MAX_VALUE);
+        store.load();
+        return store;
+    }
+
+    private static EventDTO event(final String sequenceNo, final String empId, final String type,
+                                  final double value, final LocalDate date) {
+        return new EventDTO(sequenceNo, empId, "John", "Doe", "Engineer", type, value, date, "");
+    }
+}
@@ -2,31 +2,53 @@ package com.payrollsystem;
 
 import com.payrollsystem.controller.PayrollController;
 import com.payrollsystem.dto.*;
+import com.payrollsystem.exception.IngestionRejectedException;
 import com.payrollsystem.response.PayrollProcessingResponse;
+import com.payrollsystem.service.IngestionJob;
+import com.payrollsystem.service.IngestionJobService;
 import com.payrollsystem.service.PayrollService;
+import com.payrollsystem.store.PeriodRange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import static com.payrollsystem.exception.CustomExceptionEnum.INGESTION_BUSY;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(value = PayrollController.class)
+@WebMvcTest(value = PayrollController.class, properties = "payroll.data.dir=target/test-data")
+@Import(SimpleMeterRegistry.class)
 @WithMockUser(username = "admin", roles = {"USER", "ADMIN"})
 public class PayrollControllerTests {
 
@@ -36,6 +58,9 @@ public class PayrollControllerTests {
     @MockBean
     private PayrollService payrollService;
 
+    @MockBean
+    private IngestionJobService ingestionJobService;
+
     @Test
     public void testFileUpload() throws Exception {
         final MockMultipartFile file = new MockMultipartFile(
@@ -45,7 +70,7 @@ public class PayrollControllerTests {
                 "sequenceNo,empId,firstName,lastName,designation,event,value,eventDate,notes\n1,100,John,Doe,Engineer,Update,5000,2021-04-01,Salary Update".getBytes()
         );
 
-        when(payrollService.processFile(any())).thenReturn(new PayrollProcessingResponse(true, List.of()));
+        when(payrollService.processFiles(any())).thenReturn(List.of(new PayrollProcessingResponse(true, List.of())));
 
         mockMvc.perform(multipart("/api/payroll/upload")
                         .file(file)
@@ -64,7 +89,7 @@ public class PayrollControllerTests {
                 MediaType.TEXT_PLAIN_VALUE,
                 "corrupted data".getBytes()
         );
-        when(payrollService.processFile(any())).thenReturn(new PayrollProcessingResponse(false, List.of("Invalid file format"), false));
+        when(payrollService.processFiles(any())).thenReturn(List.of(new PayrollProcessingResponse(false, List.of("Invalid file format"), false)));
 
         mockMvc.perform(multipart("/api/payroll/upload")
                         .file(file)
@@ -75,6 +100,27 @@ public class PayrollControllerTests {
                 .andExpect(jsonPath("$.errorDescriptions[0]").value("Invalid file format"));
     }
 
+    @Test
+    public void testMultiFileUpload_ReportsPerFileErrors() throws Exception {
+        final MockMultipartFile good = new MockMultipartFile("files", "employees1.csv", MediaType.TEXT_PLAIN_VALUE,
+                "1,emp101,Bill,Gates,Software Engineer,ONBOARD,22000,10-09-2022,Joined".getBytes());
+        final MockMultipartFile bad = new MockMultipartFile("files", "employees2.csv", MediaType.TEXT_PLAIN_VALUE,
+                "corrupted data".getBytes());
+        when(payrollService.processFiles(any())).thenReturn(List.of(
+                new PayrollProcessingResponse(true),
+                new PayrollProcessingResponse(false, List.of("Invalid file format"), true)));
+
+        mockMvc.perform(multipart("/api/payroll/upload")
+                        .file(good)
+                        .file(bad)
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.errorDescriptions.length()").value(1))
+                .andExpect(jsonPath("$.errorDescriptions[0]").value("Invalid file format"));
+    }
+
     @Test
     public void testFileUpload_InternalServerError() throws Exception {
         final MockMultipartFile file = new MockMultipartFile(
@@ -84,7 +130,7 @@ public class PayrollControllerTests {
                 "sequenceNo,empId,firstName,lastName,designation,event,value,eventDate,notes\n1,100,John,Doe,Engineer,Update,5000,2021-04-01,Salary Update".getBytes()
         );
 
-        when(payrollService.processFile(any())).thenThrow(new RuntimeException("Unexpected error"));
+        when(payrollService.processFiles(any())).thenThrow(new RuntimeException("Unexpected error"));
 
         mockMvc.perform(multipart("/api/payroll/upload")
                         .file(file)
@@ -93,6 +139,42 @@ public class PayrollControllerTests {
                 .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    public void testStreamUpload_Success() throws Exception {
+        final PayrollProcessingResponse committed = new PayrollProcessingResponse(true);
+        committed.setDuplicates(0L);
+        when(payrollService.processStream(any())).thenReturn(committed);
+
+        mockMvc.perform(post("/api/payroll/upload/stream")
+                        .with(csrf())
+                        .contentType("text/csv")
+                        .content("1,100,John,Doe,Engineer,ONBOARD,1-11-2022,10-10-2022,Onboarded"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.duplicates").value(0));
+        verify(payrollService, times(1)).processStream(any());
+    }
+
+    @Test
+    public void testFileUpload_TooManyInFlightIsRejectedWithRetryAfter() throws Exception {
+        final MockMultipartFile file = new MockMultipartFile(
+                "files",
+                "employees.csv",
+                MediaType.TEXT_PLAIN_VALUE,
+                "1,100,John,Doe,Engineer,ONBOARD,1-11-2022,10-10-2022,Onboarded".getBytes()
+        );
+
+        when(payrollService.processFiles(any())).thenThrow(new IngestionRejectedException(INGESTION_BUSY));
+
+        mockMvc.perform(multipart("/api/payroll/upload")
+                        .file(file)
+                        .with(csrf())
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "5"))
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     public void testGetMonthlySalaryReport() throws Exception {
         final List<MonthlyReportDTO> mockReports = List.of(new MonthlyReportDTO("January", 5000.0, 10));
@@ -121,6 +203,40 @@ public class PayrollControllerTests {
                 .andExpect(jsonPath("$[0].eventValue").value(5000.0));
     }
 
+    @Test
+    public void testGetYearlyFinancialReportPage() throws Exception {
+        final List<YearlyFinancialReportDTO> mockReports = List.of(new YearlyFinancialReportDTO("SALARY", "emp101", new Date(), 5000.0));
+        when(payrollService.generateYearlyFinancialReport(PeriodRange.ALL, 0L, 1)).thenReturn(new YearlyFinancialReportPageDTO(mockReports, 1L));
+
+        mockMvc.perform(get("/api/payroll/yearly-financial")
+                        .param("limit", "1")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].empId").value("emp101"))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+    }
+
+    @Test
+    public void testStreamYearlyFinancialReport() throws Exception {
+        doAnswer(invocation -> {
+            final PayrollService.EntryWriter<YearlyFinancialReportDTO> writer = invocation.getArgument(1);
+            writer.write(new YearlyFinancialReportDTO("SALARY", "emp101", new Date(), 5000.0));
+            writer.write(new YearlyFinancialReportDTO("BONUS", "emp102", new Date(), 700.0));
+            return null;
+        }).when(payrollService).streamYearlyFinancialReport(eq(PeriodRange.ALL), any());
+
+        final MvcResult result = mockMvc.perform(get("/api/payroll/yearly-financial")
+                        .accept("application/x-ndjson")
+                        .with(csrf()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String[] lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"empId\":\"emp102\""));
+    }
+
     @Test
     public void testGetTotalEmployees() throws Exception {
         when(payrollService.getTotalEmployees()).thenReturn(100);
@@ -132,6 +248,21 @@ public class PayrollControllerTests {
                 .andExpect(jsonPath("$").value(100));
     }
 
+    @Test
+    public void testUnchangedReportPollIsNotModified() throws Exception {
+        when(payrollService.getTotalEmployees()).thenReturn(100);
+
+        final String etag = mockMvc.perform(get("/api/payroll/total-employees"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/payroll/total-employees").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        verify(payrollService, times(1)).getTotalEmployees();
+    }
+
     @Test
     public void testGetMonthlyJoins() throws Exception {
         final Map<String, List<EventDTO>> mockJoins = Map.of(
@@ -187,5 +318,113 @@ public class PayrollControllerTests {
                 .andExpect(jsonPath("$[0].month").value("March"))
                 .andExpect(jsonPath("$[0].totalAmount").value(12000.0));
     }
-}
 
+    @Test
+    public void testGetDashboard() throws Exception {
+        final DashboardDTO dashboard = new DashboardDTO(List.of(new MonthlyReportDTO("2023-01", 5000.0, 1)),
+                List.of(new MonthlyAmountReportDTO("2023-01", 5700.0, 2)),
+                List.of(new EmployeeFinancialReportDTO("emp101", "John", "Doe", 5700.0)), 1,
+                Map.of("2023-01", List.of()), Map.of());
+        when(payrollService.getDashboard(PeriodRange.of(2023, null, null))).thenReturn(dashboard);
+
+        mockMvc.perform(get("/api/payroll/dashboard")
+                        .param("year", "2023")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.monthlySalary[0].totalSalary").value(5000.0))
+                .andExpect(jsonPath("$.monthlyAmount[0].totalAmount").value(5700.0))
+                .andExpect(jsonPath("$.employeeFinancial[0].empId").value("emp101"))
+                .andExpect(jsonPath("$.totalEmployees").value(1))
+                .andExpect(jsonPath("$.monthlyJoins['2023-01']").isArray());
+    }
+
+    @Test
+    public void testAggregate() throws Exception {
+        when(payrollService.aggregate(any())).thenReturn(List.of(
+                new AggregationRowDTO(Map.of("designation", "Engineer", "quarter", "2023-Q1"), 1500.0, 2)));
+
+        mockMvc.perform(get("/api/payroll/aggregate")
+                        .param("event", "BONUS")
+                        .param("groupBy", "designation,quarter")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].group.quarter").value("2023-Q1"))
+                .andExpect(jsonPath("$[0].value").value(1500.0));
+    }
+
+    @Test
+    public void testAggregate_UnknownFunction() throws Exception {
+        mockMvc.perform(get("/api/payroll/aggregate")
+                        .param("aggregate", "median")
+                        .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.reason_code").value("400-005"));
+    }
+
+    @Test
+    public void testAggregate_ReadFailure() throws Exception {
+        when(payrollService.aggregate(any())).thenThrow(new IOException("Storage is unreadable"));
+
+        mockMvc.perform(get("/api/payroll/aggregate")
+                        .with(csrf()))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.reason_code").value("400-001"));
+    }
+
+    @Test
+    public void testAsyncFileUpload_ReturnsQueuedJob() throws Exception {
+        final MockMultipartFile file = new MockMultipartFile(
+                "files", "employees.csv", MediaType.TEXT_PLAIN_VALUE, "1,emp101,John,Doe,Engineer,SALARY,5000,01-04-2021,".getBytes());
+        final IngestionJob job = new IngestionJob();
+        when(ingestionJobService.submit(any())).thenReturn(job);
+
+        mockMvc.perform(multipart("/api/payroll/upload")
+                        .file(file)
+                        .param("async", "true")
+                        .with(csrf()))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(job.getId()))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    public void testGetJob_NotFound() throws Exception {
+        when(ingestionJobService.getJob(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/payroll/jobs/unknown")
+                        .with(csrf()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.reason_code").value("404-001"));
+    }
+
+    @Test
+    public void testGetMonthlySalaryReport_ForYear() throws Exception {
+        final List<MonthlyReportDTO> mockReports = List.of(new MonthlyReportDTO("2023-01", 5000.0, 1));
+        when(payrollService.generateMonthlySalaryReport(PeriodRange.of(2023, null, null))).thenReturn(mockReports);
+
+        mockMvc.perform(get("/api/payroll/monthly-salary")
+                        .param("year", "2023")
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].month").value("2023-01"));
+    }
+
+    @Test
+    public void testGetMonthlyAmountReport_EmptyPeriod() throws Exception {
+        mockMvc.perform(get("/api/payroll/monthly-amount")
+                        .param("from", "2023-05")
+                        .param("to", "2023-02")
+                        .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.reason_code").value("400-004"));
+    }
+
+    @Test
+    public void testGetMonthlyAmountReport_YearOutOfRange() throws Exception {
+        mockMvc.perform(get("/api/payroll/monthly-amount")
+                        .param("year", "1000000000")
+                        .with(csrf()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.reason_code").value("400-004"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.payrollsystem;
+
+import com.payrollsystem.dto.EventDTO;
+import com.payrollsystem.parser.ParseResult;
+import com.payrollsystem.parser.PayrollCsvParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PayrollCsvParserTests {
+
+    @Test
+    public void testParsesSampleFile() throws Exception {
+        final List<EventDTO> events = new ArrayList<>();
+        final ParseResult result = new PayrollCsvParser().parse(new StringReader(
+                "SequenceNo,EmpID,EmpFName,EmpLName,Designation,Event,Value,EventDate,Notes\n"
+                        + "1,emp106,Larry,Page,CEO,ONBOARD,2300,31-12-2022,\"Larry Page will start as CEO in January.\"\n"
+                        + "6, emp101 ,Bill,Gates,Software Engineer,EXIT,2022.50,30-11-2022,Leaving for personal reasons.\n"),
+                events::add);
+
+        assertEquals(2, result.getRowsParsed());
+        assertEquals(0, result.getRowsRejected());
+        assertEquals(new EventDTO("1", "emp106", "Larry", "Page", "CEO", "ONBOARD", 2300.0,
+                LocalDate.of(2022, 12, 31), "Larry Page will start as CEO in January."), events.get(0));
+        assertEquals("emp101", events.get(1).getEmpId());
+        assertEquals(2022.5, events.get(1).getValue());
+        assertEquals("Leaving for personal reasons.", events.get(1).getNotes());
+    }
+
+    @Test
+    public void testQuotedNotesWithCommasQuotesAndLineBreaks() throws Exception {
+        final List<EventDTO> events = new ArrayList<>();
+        new PayrollCsvParser().parse(new StringReader(
+                "1,emp1,A,B,CTO,BONUS,10,01-01-2023,\"Bonus, \"\"annual\"\", paid\"\r\n"
+                        + "2,emp2,A,B,CTO,SALARY,20,02-01-2023,\"two\nlines\"\n"
+                        + "3,emp3,A,B,CTO,SALARY,30,03-01-2023,unquoted, with comma"),
+                events::add);
+
+        assertEquals(3, events.size());
+        assertEquals("Bonus, \"annual\", paid", events.get(0).getNotes());
+        assertEquals("two\nlines", events.get(1).getNotes());
+        assertEquals("unquoted, with comma", events.get(2).getNotes());
+    }
+
+    @Test
+    public void testFailsOnUnclosedQuoteInsteadOfBufferingTheRest() {
+        final String row = "2,emp2,A,B,CTO,SALARY,20,02-01-2023,paid\n";
+        final String input = "1,emp1,A,B,CTO,BONUS,10,01-01-2023,\"never closed\n" + row.repeat(10_000);
+        final List<EventDTO> events = new ArrayList<>();
+
+        final IOException e = assertThrows(IOException.class,
+                () -> new PayrollCsvParser().parse(new StringReader(input), events::add));
+        assertTrue(e.getMessage().startsWith("Record 1 "), e.getMessage());
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void testRejectsMalformedRows() throws Exception {
+        final List<EventDTO> events = new ArrayList<>();
+        final ParseResult result = new PayrollCsvParser().parse(new StringReader(
+                "1,emp1,A,B,CTO,SALARY,abc,01-01-2023,bad value\n"
+                        + "2,emp1,A,B,CTO,SALARY,10,2023-01-01,bad date\n"
+                        + "3,emp1,A,B\n"
+                        + "\n"
+                        + "4,emp1,A,B,CTO,SALARY,1e3,31-02-2023,ok\n"),
+                events::add);
+
+        assertEquals(1, result.getRowsParsed());
+        assertEquals(3, result.getRowsRejected());
+        assertEquals(1000.0, events.get(0).getValue());
+        assertEquals(LocalDate.of(2023, 2, 28), events.get(0).getEventDate());
+    }
+
+    @Test
+    public void testPoolsRepeatedColumnValues() throws Exception {
+        final List<EventDTO> events = new ArrayList<>();
+        new PayrollCsvParser().parse(new StringReader(
+                "1,emp1,A,B,Engineer,SALARY,10,01-01-2023,x\n2,emp1,A,B,Engineer,SALARY,10,01-02-2023,y\n"),
+                events::add);
+
+        assertSame(events.get(0).getDesignation(), events.get(1).getDesignation());
+        assertSame(events.get(0).getEmpId(), events.get(1).getEmpId());
+    }
+}
@@ -0,0 +1,79 @@
+package com.payrollsystem;
+
+import com.payrollsystem.generator.GeneratorConfig;
+import com.payrollsystem.generator.PayrollDataGenerator;
+import com.payrollsystem.parser.ParseResult;
+import com.payrollsystem.parser.PayrollCsvParser;
+import com.payrollsystem.store.EventLog;
+import com.payrollsystem.store.EventStore;
+import com.payrollsystem.store.ReportAggregates;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PayrollDataGeneratorTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGeneratedCsvParsesBackWithQuotedNotes() throws Exception {
+        final GeneratorConfig config = config();
+        config.setQuotedNotesRate(1.0);
+        final Path file = tempDir.resolve("upload.csv");
+
+        final long rows = new PayrollDataGenerator(config).writeCsv(file);
+
+        try (final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            final ParseResult result = new PayrollCsvParser().parse(reader, event -> {
+            });
+            assertEquals(rows, result.getRowsParsed());
+            assertEquals(0, result.getRowsRejected());
+        }
+    }
+
+    @Test
+    public void testMalformedRowsAreRejected() throws Exception {
+        final GeneratorConfig config = config();
+        config.setMalformedRate(0.2);
+        final Path file = tempDir.resolve("upload.csv");
+
+        final long rows = new PayrollDataGenerator(config).writeCsv(file);
+
+        try (final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            final ParseResult result = new PayrollCsvParser().parse(reader, event -> {
+            });
+            assertEquals(rows, result.getRowsParsed() + result.getRowsRejected());
+            assertTrue(result.getRowsRejected() > 0);
+        }
+    }
+
+    @Test
+    public void testPopulatedStoreLoadsWithMatchingAggregates() throws Exception {
+        final long events = new PayrollDataGenerator(config()).populateStore(tempDir, "ndjson");
+
+        final EventLog log = new EventLog(tempDir.resolve("events"), 1024 * 1024);
+        log.open();
+        final EventStore store = new EventStore(log, tempDir.resolve("aggregates.json"), Long.MAX_VALUE);
+        store.load();
+        assertEquals(events, store.getEventCount());
+        assertEquals(events, (long) store.readAggregates(ReportAggregates::getEventCount));
+        assertEquals(50, (int) store.readAggregates(a -> a.getEmployees().size()));
+    }
+
+    private static GeneratorConfig config() {
+        final GeneratorConfig config = new GeneratorConfig();
+        config.setEmployees(50);
+        config.setMonths(12);
+        config.setEndMonth(YearMonth.of(2023, 12));
+        return config;
+    }
+}
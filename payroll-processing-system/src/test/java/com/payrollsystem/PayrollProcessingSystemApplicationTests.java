@@ -1,13 +1,99 @@
 package com.payrollsystem;
 
+import com.payrollsystem.dto.DashboardDTO;
+import com.payrollsystem.response.PayrollProcessingResponse;
+import com.payrollsystem.service.PayrollService;
+import com.payrollsystem.store.EventStore;
+import com.payrollsystem.store.PeriodRange;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"payroll.data.dir=target/test-data", "payroll.ingest.stream-chunk-rows=100"})
 class PayrollProcessingSystemApplicationTests {
 
+	@Autowired
+	private PayrollService payrollService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private EventStore eventStore;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void reportCallsAreTimed() throws Exception {
+		payrollService.getTotalEmployees();
+
+		final Timer timer = meterRegistry.find("payroll.report").tag("report", "total-employees").timer();
+		assertNotNull(timer);
+		assertEquals(1, timer.count());
+		assertNotNull(meterRegistry.find("payroll.store.events").gauge());
+	}
+
+	@Test
+	void dashboardMatchesTheIndividualReports() throws Exception {
+		final String run = Long.toString(System.nanoTime(), 36);
+		payrollService.processStream(new ByteArrayInputStream(("SequenceNo,EmpID,EmpFName,EmpLName,Designation,Event,Value,EventDate,Notes\n"
+				+ run + "-1,emp901,Jane,Roe,Analyst,ONBOARD,0,02-01-2022,\n"
+				+ run + "-2,emp901,Jane,Roe,Analyst,SALARY,4000.10,31-01-2022,\n"
+				+ run + "-3,emp901,Jane,Roe,Analyst,EXIT,0,28-02-2022,\n").getBytes(StandardCharsets.UTF_8)));
+
+		final PeriodRange year = PeriodRange.of(2022, null, null);
+		final DashboardDTO dashboard = payrollService.getDashboard(year);
+		assertEquals(payrollService.generateMonthlySalaryReport(year), dashboard.getMonthlySalary());
+		assertEquals(payrollService.getMonthlyAmountReport(year), dashboard.getMonthlyAmount());
+		assertEquals(payrollService.getEmployeeFinancialReport(year), dashboard.getEmployeeFinancial());
+		assertEquals(payrollService.getEmployeeEventsByMonth("ONBOARD", year), dashboard.getMonthlyJoins());
+		assertEquals(payrollService.getEmployeeEventsByMonth("EXIT", year), dashboard.getMonthlyExits());
+		assertTrue(dashboard.getTotalEmployees() >= 1);
+
+		final DashboardDTO allTime = payrollService.getDashboard(PeriodRange.ALL);
+		assertEquals(payrollService.generateMonthlySalaryReport(), allTime.getMonthlySalary());
+		assertEquals(payrollService.getEmployeeFinancialReport(), allTime.getEmployeeFinancial());
+		assertEquals(payrollService.getEmployeeEventsByMonth("EXIT"), allTime.getMonthlyExits());
+		assertEquals((int) eventStore.readAggregates(a -> a.getEmployees().size()), allTime.getTotalEmployees());
+	}
+
+	@Test
+	void gzippedStreamIsCommittedInChunks() throws Exception {
+		final String run = Long.toString(System.nanoTime(), 36);
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (final Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed), StandardCharsets.UTF_8)) {
+			writer.write("SequenceNo,EmpID,EmpFName,EmpLName,Designation,Event,Value,EventDate,Notes\n");
+			for (int i = 0; i < 250; i++) {
+				writer.write(run + "-" + i + ",emp" + i % 10 + ",John,Doe,Engineer,SALARY,100,31-01-2023,\n");
+			}
+		}
+		final long eventsBefore = eventStore.getEventCount();
+		final Timer commits = meterRegistry.find("payroll.store.commit").timer();
+		final long commitsBefore = commits.count();
+
+		final PayrollProcessingResponse first = payrollService.processStream(new ByteArrayInputStream(compressed.toByteArray()));
+		final PayrollProcessingResponse resent = payrollService.processStream(new ByteArrayInputStream(compressed.toByteArray()));
+
+		assertTrue(first.isSuccess());
+		assertEquals(0L, first.getDuplicates());
+		assertEquals(250L, resent.getDuplicates());
+		assertEquals(eventsBefore + 250, eventStore.getEventCount());
+		assertEquals(commitsBefore + 6, commits.count());
+	}
+
 }
@@ -0,0 +1,71 @@
+package com.payrollsystem;
+
+import com.payrollsystem.store.PersistentMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PersistentMapTests {
+
+    @Test
+    public void testEditsLeaveTheSharedMapUnchanged() {
+        final Map<String, Integer> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            expected.put("emp" + i, i);
+        }
+        final PersistentMap<String, Integer> base = PersistentMap.copyOf(expected);
+        assertEquals(expected, base);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(base.keySet()));
+
+        final PersistentMap.Edit edit = new PersistentMap.Edit();
+        final PersistentMap<String, Integer> next = base.editable(edit);
+        next.put("emp7", -7);
+        next.put("emp10000", 10_000);
+        edit.close();
+
+        assertEquals(expected, base);
+        assertNull(base.get("emp10000"));
+        assertEquals(-7, next.get("emp7"));
+        assertEquals(10_001, next.size());
+        assertEquals("emp10000", new ArrayList<>(next.keySet()).get(10_000));
+        assertThrows(UnsupportedOperationException.class, () -> next.put("emp1", 1));
+    }
+
+    @Test
+    public void testBranchesFromOneMapKeepTheirOwnKeys() {
+        final PersistentMap<String, Integer> base = PersistentMap.copyOf(Map.of("a", 1));
+        final PersistentMap.Edit left = new PersistentMap.Edit();
+        final PersistentMap<String, Integer> leftMap = base.editable(left);
+        leftMap.put("b", 2);
+        left.close();
+        final PersistentMap.Edit right = new PersistentMap.Edit();
+        final PersistentMap<String, Integer> rightMap = base.editable(right);
+        rightMap.put("c", 3);
+        right.close();
+
+        assertEquals(List.of("a", "b"), new ArrayList<>(leftMap.keySet()));
+        assertEquals(List.of("a", "c"), new ArrayList<>(rightMap.keySet()));
+        assertFalse(leftMap.containsKey("c"));
+    }
+
+    @Test
+    public void testKeysWithEqualHashesAreKeptApart() {
+        final PersistentMap.Edit edit = new PersistentMap.Edit();
+        final PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().editable(edit);
+        map.put("Aa", 1);
+        map.put("BB", 2);
+        map.put("Aa", 3);
+        edit.close();
+
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertEquals(Map.of("Aa", 3, "BB", 2), map);
+    }
+}